@@ -0,0 +1,76 @@
+package com.taskscheduler.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One entry of a POST /api/tasks/batch request
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchOperation {
+    public static final String ADD = "add";
+    public static final String COMPLETE = "complete";
+    public static final String DELETE = "delete";
+    
+    @JsonProperty("op")
+    private String op;
+    
+    // Target task for complete and delete
+    @JsonProperty("id")
+    private String id;
+    
+    // New task fields for add
+    @JsonProperty("name")
+    private String name;
+    
+    @JsonProperty("priority")
+    private int priority;
+    
+    @JsonProperty("dueTime")
+    private Long dueTime;
+    
+    @JsonProperty("recurrence")
+    private String recurrence;
+    
+    // Completed flag for complete; defaults to true
+    @JsonProperty("completed")
+    private boolean completed = true;
+    
+    // Default constructor for JSON deserialization
+    public BatchOperation() {}
+    
+    public BatchOperation(String op, String id, String name, boolean completed) {
+        this.op = op;
+        this.id = id;
+        this.name = name;
+        this.completed = completed;
+    }
+    
+    public String getOp() {
+        return op;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public Long getDueTime() {
+        return dueTime;
+    }
+    
+    public String getRecurrence() {
+        return recurrence;
+    }
+    
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -0,0 +1,46 @@
+package com.taskscheduler.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one batch operation, in request order
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    @JsonProperty("success")
+    private final boolean success;
+    
+    // Id of the added, updated or deleted task
+    @JsonProperty("id")
+    private final String id;
+    
+    @JsonProperty("error")
+    private final String error;
+    
+    private BatchResult(boolean success, String id, String error) {
+        this.success = success;
+        this.id = id;
+        this.error = error;
+    }
+    
+    public static BatchResult ok(String id) {
+        return new BatchResult(true, id, null);
+    }
+    
+    public static BatchResult failed(String error) {
+        return new BatchResult(false, null, error);
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getError() {
+        return error;
+    }
+}
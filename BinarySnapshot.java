@@ -0,0 +1,231 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary snapshot files (tasks.bin, subscribers.bin)
+ *
+ * Layout, big-endian:
+ *   header   magic "TSKB" (4) | version (2) | kind (1) | reserved (1) |
+ *            entry count (4) | payload length (8) | CRC32C of payload (4)
+ *   tasks    string table: count (4), then each string as length (4) + UTF-8 bytes;
+ *            then per task: id index (4) | name index (4) | flags (1) |
+ *            priority (4, if set) | due time (8, if set) | recurrence index (4, if set)
+ *   strings  per entry: length (4) + UTF-8 bytes
+ *
+ * Every string in a task snapshot is stored once in the table and referenced
+ * by index, so repeated values such as recurrence periods cost four bytes.
+ * Files are read through a read-only memory map; the checksum is verified
+ * before anything is decoded.
+ */
+public class BinarySnapshot {
+    private static final int MAGIC = 0x54534B42; // "TSKB"
+    private static final short VERSION = 1;
+    private static final byte KIND_TASKS = 1;
+    private static final byte KIND_STRINGS = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_PRIORITY = 1 << 1;
+    private static final int FLAG_DUE_TIME = 1 << 2;
+    private static final int FLAG_RECURRENCE = 1 << 3;
+    
+    static final SharedDataFile.Format<List<Task>> TASKS = new SharedDataFile.Format<>() {
+        @Override
+        public List<Task> read(Path path) throws IOException {
+            return readTasks(path);
+        }
+        
+        @Override
+        public void write(List<Task> tasks, FileChannel out) throws IOException {
+            writeTasks(tasks, out);
+        }
+    };
+    
+    static final SharedDataFile.Format<List<String>> STRINGS = new SharedDataFile.Format<>() {
+        @Override
+        public List<String> read(Path path) throws IOException {
+            return readStrings(path);
+        }
+        
+        @Override
+        public void write(List<String> values, FileChannel out) throws IOException {
+            writeStrings(values, out);
+        }
+    };
+    
+    private BinarySnapshot() {}
+    
+    public static List<Task> readTasks(Path path) throws IOException {
+        ByteBuffer payload = mapPayload(path, KIND_TASKS);
+        int taskCount = payload.getInt(8);
+        payload.position(HEADER_BYTES);
+        
+        String[] strings = new String[payload.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = payload.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            payload.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String id = strings[payload.getInt()];
+            String name = strings[payload.getInt()];
+            int flags = payload.get();
+            int priority = (flags & FLAG_PRIORITY) != 0 ? payload.getInt() : 0;
+            Long dueTime = (flags & FLAG_DUE_TIME) != 0 ? payload.getLong() : null;
+            String recurrence = (flags & FLAG_RECURRENCE) != 0 ? strings[payload.getInt()] : null;
+            tasks.add(new Task(id, name, (flags & FLAG_COMPLETED) != 0, priority, dueTime, recurrence));
+        }
+        return tasks;
+    }
+    
+    public static void writeTasks(List<Task> tasks, FileChannel out) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>(tasks.size() * 3);
+        List<String> strings = new ArrayList<>(tasks.size() * 2);
+        for (Task task : tasks) {
+            intern(task.getId(), indexes, strings);
+            intern(task.getName(), indexes, strings);
+            if (task.getRecurrence() != null) {
+                intern(task.getRecurrence(), indexes, strings);
+            }
+        }
+        
+        writeSnapshot(out, KIND_TASKS, tasks.size(), data -> {
+            data.writeInt(strings.size());
+            for (String value : strings) {
+                writeString(data, value);
+            }
+            for (Task task : tasks) {
+                int flags = (task.isCompleted() ? FLAG_COMPLETED : 0)
+                        | (task.getPriority() != 0 ? FLAG_PRIORITY : 0)
+                        | (task.getDueTime() != null ? FLAG_DUE_TIME : 0)
+                        | (task.getRecurrence() != null ? FLAG_RECURRENCE : 0);
+                data.writeInt(indexes.get(task.getId()));
+                data.writeInt(indexes.get(task.getName()));
+                data.writeByte(flags);
+                if (task.getPriority() != 0) {
+                    data.writeInt(task.getPriority());
+                }
+                if (task.getDueTime() != null) {
+                    data.writeLong(task.getDueTime());
+                }
+                if (task.getRecurrence() != null) {
+                    data.writeInt(indexes.get(task.getRecurrence()));
+                }
+            }
+        });
+    }
+    
+    public static List<String> readStrings(Path path) throws IOException {
+        ByteBuffer payload = mapPayload(path, KIND_STRINGS);
+        int count = payload.getInt(8);
+        payload.position(HEADER_BYTES);
+        
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[payload.getInt()];
+            payload.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+    
+    public static void writeStrings(List<String> values, FileChannel out) throws IOException {
+        writeSnapshot(out, KIND_STRINGS, values.size(), data -> {
+            for (String value : values) {
+                writeString(data, value);
+            }
+        });
+    }
+    
+    private static void intern(String value, Map<String, Integer> indexes, List<String> strings) {
+        if (indexes.putIfAbsent(value, strings.size()) == null) {
+            strings.add(value);
+        }
+    }
+    
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+    
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream data) throws IOException;
+    }
+    
+    // Streams the payload after a blank header, then fills the header in once length and checksum are known
+    private static void writeSnapshot(FileChannel out, byte kind, int count, PayloadWriter payloadWriter) throws IOException {
+        CRC32C checksum = new CRC32C();
+        out.position(HEADER_BYTES);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(out), checksum), WRITE_BUFFER_BYTES));
+        payloadWriter.write(data);
+        data.flush();
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC)
+              .putShort(VERSION)
+              .put(kind)
+              .put((byte) 0)
+              .putInt(count)
+              .putLong(out.position() - HEADER_BYTES)
+              .putInt((int) checksum.getValue())
+              .flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += out.write(header, position);
+        }
+    }
+    
+    // Maps the whole file and validates the header; the returned buffer is positioned at 0
+    private static ByteBuffer mapPayload(Path path, byte kind) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size + ": " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.get(6) != kind) {
+                throw new IOException("Not a " + (kind == KIND_TASKS ? "task" : "string") + " snapshot: " + path);
+            }
+            if (buffer.getShort(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version " + buffer.getShort(4) + ": " + path);
+            }
+            if (buffer.getLong(12) != size - HEADER_BYTES) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(HEADER_BYTES, (int) size - HEADER_BYTES));
+            if ((int) checksum.getValue() != buffer.getInt(20)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            return buffer;
+        }
+    }
+}
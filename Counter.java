@@ -0,0 +1,27 @@
+package com.taskscheduler.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event count
+ *
+ * Backed by a LongAdder, so threads incrementing it at the same time update
+ * separate cells instead of contending on one value.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+    
+    Counter() {}
+    
+    public void increment() {
+        value.increment();
+    }
+    
+    public void add(long amount) {
+        value.add(amount);
+    }
+    
+    public long get() {
+        return value.sum();
+    }
+}
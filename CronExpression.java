@@ -0,0 +1,129 @@
+package com.taskscheduler.service;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Standard five-field cron expression: minute hour day-of-month month day-of-week
+ *
+ * Each field accepts *, single values, ranges (1-5), lists (1,15,30) and
+ * steps (*&#47;5, 10-50/10). Day-of-week runs 0-7 with both 0 and 7 meaning
+ * Sunday. As in Vixie cron, when both day fields are restricted a day
+ * matches if either one does.
+ */
+public class CronExpression {
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+    
+    public CronExpression(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        this.expression = expression.trim();
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        this.daysOfWeek = parseField(fields[4], 0, 7);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.dayOfMonthRestricted = !fields[2].equals("*");
+        this.dayOfWeekRestricted = !fields[4].equals("*");
+    }
+    
+    /**
+     * First matching minute strictly after the given time, in that time's zone
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        // Every valid expression matches within a leap-year cycle
+        ZonedDateTime limit = time.plusYears(5);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+                continue;
+            }
+            if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                continue;
+            }
+            if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+                continue;
+            }
+            return time;
+        }
+        throw new IllegalStateException("Cron expression never matches: " + expression);
+    }
+    
+    @Override
+    public String toString() {
+        return expression;
+    }
+    
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dayOfMonth || dayOfWeek;
+        }
+        return dayOfMonth && dayOfWeek;
+    }
+    
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max);
+                part = part.substring(0, slash);
+            }
+            
+            int start;
+            int end;
+            if (part.equals("*")) {
+                start = min;
+                end = max;
+            } else if (part.indexOf('-') > 0) {
+                start = parseNumber(part.substring(0, part.indexOf('-')), min, max);
+                end = parseNumber(part.substring(part.indexOf('-') + 1), min, max);
+                if (end < start) {
+                    throw new IllegalArgumentException("Invalid cron range: " + part);
+                }
+            } else {
+                start = parseNumber(part, min, max);
+                end = slash >= 0 ? max : start;
+            }
+            for (int value = start; value <= end; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+    
+    private static int parseNumber(String text, int min, int max) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Cron value out of range " + min + "-" + max + ": " + text);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron value: " + text);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.Task;
+import com.taskscheduler.model.TaskEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Fires a callback when each pending task reaches its due time
+ *
+ * In-process alternative to the hourly cron job: instead of scanning every
+ * task on a schedule, one timer per dated task lives in a timing wheel and
+ * is rescheduled or cancelled as TaskManager reports changes.
+ */
+public class DueTaskDispatcher {
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int DEFAULT_LEVELS = 4;
+    
+    private static final Counter DISPATCHED = MetricsRegistry.getDefault().counter(
+            "taskscheduler_due_tasks_dispatched_total", "Tasks that reached their due time while pending");
+    
+    private final TaskManager taskManager;
+    private final Consumer<Task> onDue;
+    private final TimingWheel timingWheel;
+    private final Map<String, TimingWheel.Timeout> timeoutsByTaskId = new ConcurrentHashMap<>();
+    private final Consumer<TaskEvent> listener = this::onTaskEvent;
+    
+    public DueTaskDispatcher(TaskManager taskManager, Consumer<Task> onDue, Executor callbackExecutor) {
+        this(taskManager, onDue, callbackExecutor, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, DEFAULT_LEVELS);
+    }
+    
+    /**
+     * @param callbackExecutor runs {@code onDue}; the tick thread never runs callbacks itself
+     */
+    public DueTaskDispatcher(TaskManager taskManager, Consumer<Task> onDue, Executor callbackExecutor,
+                             long tickMillis, int wheelSize, int levels) {
+        this.taskManager = taskManager;
+        this.onDue = onDue;
+        this.timingWheel = new TimingWheel(tickMillis, wheelSize, levels, callbackExecutor);
+    }
+    
+    public void start() {
+        timingWheel.start();
+        taskManager.addTaskListener(listener);
+        for (Task task : taskManager.getPendingTasks()) {
+            if (task.getDueTime() == null) {
+                break; // Undated tasks sort last in the pending queue
+            }
+            schedule(task);
+        }
+    }
+    
+    public void stop() {
+        taskManager.removeTaskListener(listener);
+        timingWheel.stop();
+        timeoutsByTaskId.values().forEach(TimingWheel.Timeout::cancel);
+        timeoutsByTaskId.clear();
+    }
+    
+    public int getScheduledCount() {
+        return timeoutsByTaskId.size();
+    }
+    
+    private void onTaskEvent(TaskEvent event) {
+        Task task = event.getTask();
+        if (event.getType() == TaskEvent.Type.DELETED || task.isCompleted() || task.getDueTime() == null) {
+            TimingWheel.Timeout previous = timeoutsByTaskId.remove(task.getId());
+            if (previous != null) {
+                previous.cancel();
+            }
+        } else {
+            schedule(task);
+        }
+    }
+    
+    private void schedule(Task task) {
+        String taskId = task.getId();
+        long dueTime = task.getDueTime();
+        TimingWheel.Timeout timeout = timingWheel.schedule(dueTime, () -> fire(taskId, dueTime));
+        TimingWheel.Timeout previous = timeoutsByTaskId.put(taskId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+    
+    private void fire(String taskId, long dueTime) {
+        Task task = taskManager.getTaskById(taskId);
+        // Skip timers made stale by a change that raced with expiry
+        if (task == null || task.isCompleted() || task.getDueTime() == null || task.getDueTime() != dueTime) {
+            return;
+        }
+        timeoutsByTaskId.computeIfPresent(taskId, (id, timeout) -> timeout.isExpired() ? null : timeout);
+        DISPATCHED.increment();
+        try {
+            onDue.accept(task);
+        } catch (RuntimeException e) {
+            System.err.println("Error dispatching due task " + taskId + ": " + e.getMessage());
+        }
+    }
+}
@@ -12,23 +12,122 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
- * Service class for handling file storage operations
+ * Service class for handling file storage operations.
+ *
+ * The JSON files are shared with the CronTask process: writes are locked and
+ * atomically swapped in, and reads reuse the last parsed content unless the
+ * file changed on disk (see {@link SharedDataFile}).
+ *
+ * In binary snapshot mode tasks and subscribers live in tasks.bin and
+ * subscribers.bin instead (see {@link BinarySnapshot}); the JSON files are
+ * imported on first start and can be re-exported with {@link #exportJson()}.
+ *
+ * Single subscriber and verification-code changes are appended to
+ * subscriptions.log (see {@link SubscriptionJournal}) and folded into the
+ * subscriber files once the log grows long, or on close.
  */
-public class FileStorage {
+public class FileStorage implements Storage {
     private static final String DATA_DIR = "src/main/resources/data/";
     private static final String TASKS_FILE = DATA_DIR + "tasks.txt";
     private static final String SUBSCRIBERS_FILE = DATA_DIR + "subscribers.txt";
     private static final String PENDING_SUBSCRIPTIONS_FILE = DATA_DIR + "pending_subscriptions.txt";
+    private static final String TASKS_LOG_FILE = DATA_DIR + "tasks.log";
+    private static final String REMINDER_OUTBOX_FILE = DATA_DIR + "outbox.log";
+    private static final String SUBSCRIPTIONS_LOG_FILE = DATA_DIR + "subscriptions.log";
+    private static final String TASKS_SNAPSHOT_FILE = DATA_DIR + "tasks.bin";
+    private static final String SUBSCRIBERS_SNAPSHOT_FILE = DATA_DIR + "subscribers.bin";
+    private static final long LOG_COMPACTION_INTERVAL_SECONDS = 60;
+    private static final int SUBSCRIPTION_LOG_FOLD_RECORDS = 256;
+    
+    private static final LatencyHistogram LOAD_TASKS_TIME = operationHistogram("load_tasks");
+    private static final LatencyHistogram SAVE_TASKS_TIME = operationHistogram("save_tasks");
+    private static final LatencyHistogram SYNC_TASK_LOG_TIME = operationHistogram("sync_task_log");
+    private static final LatencyHistogram COMPACT_TASK_LOG_TIME = operationHistogram("compact_task_log");
     
     private final ObjectMapper objectMapper;
+    private final SharedDataFile<List<Task>> tasksFile;
+    private final SharedDataFile<List<String>> subscribersFile;
+    // The JSON files; the same as tasksFile and subscribersFile unless in binary snapshot mode
+    private final SharedDataFile<List<Task>> tasksJsonFile;
+    private final SharedDataFile<List<String>> subscribersJsonFile;
+    private final SharedDataFile<Map<String, PendingSubscription>> pendingSubscriptionsFile;
+    private final SubscriptionJournal subscriptionJournal;
+    
+    // Only set in write-ahead log mode
+    private final TaskJournal taskJournal;
+    private ScheduledExecutorService taskCompactor;
     
     public FileStorage() {
+        this(false);
+    }
+    
+    /**
+     * @param writeAheadLog when true, task mutations are appended to tasks.log
+     *                      and periodically folded into tasks.txt instead of
+     *                      rewriting tasks.txt on every change
+     */
+    public FileStorage(boolean writeAheadLog) {
+        this(writeAheadLog, false);
+    }
+    
+    /**
+     * @param binarySnapshots when true, tasks and subscribers are stored in the
+     *                        memory-mapped binary format instead of JSON
+     */
+    public FileStorage(boolean writeAheadLog, boolean binarySnapshots) {
         this.objectMapper = new ObjectMapper();
         initializeDataDirectory();
+        this.tasksJsonFile = new SharedDataFile<>(Paths.get(TASKS_FILE), objectMapper,
+                new TypeReference<List<Task>>() {}, ArrayList::new, FileStorage::copyTasks);
+        this.subscribersJsonFile = new SharedDataFile<>(Paths.get(SUBSCRIBERS_FILE), objectMapper,
+                new TypeReference<List<String>>() {}, ArrayList::new, ArrayList::new);
+        if (binarySnapshots) {
+            this.tasksFile = new SharedDataFile<>(Paths.get(TASKS_SNAPSHOT_FILE),
+                    BinarySnapshot.TASKS, FileStorage::copyTasks);
+            this.subscribersFile = new SharedDataFile<>(Paths.get(SUBSCRIBERS_SNAPSHOT_FILE),
+                    BinarySnapshot.STRINGS, ArrayList::new);
+            // Seed each snapshot from its JSON file the first time, leaving an existing one alone
+            if (!tasksFile.exists()) {
+                importTasks();
+            }
+            if (!subscribersFile.exists()) {
+                importSubscribers();
+            }
+        } else {
+            this.tasksFile = tasksJsonFile;
+            this.subscribersFile = subscribersJsonFile;
+        }
+        this.pendingSubscriptionsFile = new SharedDataFile<>(Paths.get(PENDING_SUBSCRIPTIONS_FILE), objectMapper,
+                new TypeReference<Map<String, PendingSubscription>>() {}, HashMap::new, HashMap::new);
+        try {
+            this.subscriptionJournal = new SubscriptionJournal(Paths.get(SUBSCRIPTIONS_LOG_FILE), objectMapper);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open subscription log", e);
+        }
+        
+        if (writeAheadLog) {
+            try {
+                this.taskJournal = new TaskJournal(Paths.get(TASKS_LOG_FILE), objectMapper);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open task log", e);
+            }
+        } else {
+            this.taskJournal = null;
+        }
+    }
+    
+    private static LatencyHistogram operationHistogram(String operation) {
+        return MetricsRegistry.getDefault().histogram("taskscheduler_storage_operation_seconds",
+                "Time spent in file storage operations", "operation", operation);
     }
     
     private void initializeDataDirectory() {
@@ -55,71 +154,395 @@ public class FileStorage {
     }
     
     // Task operations
+    @Override
     public List<Task> loadTasks() {
+        long start = System.nanoTime();
         try {
-            String content = Files.readString(Paths.get(TASKS_FILE));
-            if (content.trim().isEmpty()) {
-                return new ArrayList<>();
-            }
-            return objectMapper.readValue(content, new TypeReference<List<Task>>() {});
+            return Trace.call("storage.load_tasks", this::readTasks);
+        } finally {
+            LOAD_TASKS_TIME.recordSince(start);
+        }
+    }
+    
+    private List<Task> readTasks() {
+        List<Task> tasks = loadTaskSnapshot();
+        if (taskJournal == null) {
+            return tasks;
+        }
+        
+        // Snapshot plus every mutation logged since the last compaction
+        Map<String, Task> tasksById = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            tasksById.put(task.getId(), task);
+        }
+        try {
+            taskJournal.replay(tasksById);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay task log", e);
+        }
+        return new ArrayList<>(tasksById.values());
+    }
+    
+    private List<Task> loadTaskSnapshot() {
+        try {
+            return tasksFile.read();
         } catch (IOException e) {
             System.err.println("Error loading tasks: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
+    @Override
     public void saveTasks(List<Task> tasks) {
+        long start = System.nanoTime();
         try {
-            String json = objectMapper.writeValueAsString(tasks);
-            Files.write(Paths.get(TASKS_FILE), json.getBytes());
+            Trace.run("storage.save_tasks", () -> tasksFile.write(tasks));
         } catch (IOException e) {
             throw new RuntimeException("Failed to save tasks", e);
+        } finally {
+            SAVE_TASKS_TIME.recordSince(start);
+        }
+    }
+    
+    // Write-ahead log operations
+    public boolean isWriteAheadLogEnabled() {
+        return taskJournal != null;
+    }
+    
+    @Override
+    public boolean isIncremental() {
+        return isWriteAheadLogEnabled();
+    }
+    
+    /**
+     * Append a task mutation to tasks.log and return its sequence number.
+     * Pass the sequence to {@link #awaitDurable(long)} before acknowledging the change.
+     */
+    @Override
+    public long taskAdded(Task task) {
+        return appendToTaskLog(TaskJournal.Record.added(task));
+    }
+    
+    @Override
+    public long taskCompleted(Task task) {
+        return appendToTaskLog(TaskJournal.Record.completed(task));
+    }
+    
+    @Override
+    public long taskScheduled(Task task) {
+        return appendToTaskLog(TaskJournal.Record.scheduled(task));
+    }
+    
+    @Override
+    public long taskDeleted(String taskId) {
+        return appendToTaskLog(TaskJournal.Record.deleted(taskId));
+    }
+    
+    /**
+     * Append a group of task mutations with a single write
+     */
+    @Override
+    public long taskBatch(List<TaskChange> changes) {
+        if (taskJournal == null) {
+            throw new IllegalStateException("Write-ahead log is not enabled");
+        }
+        List<TaskJournal.Record> records = new ArrayList<>(changes.size());
+        for (TaskChange change : changes) {
+            records.add(TaskJournal.Record.of(change));
+        }
+        try {
+            return Trace.call("storage.append_task_log", () -> taskJournal.appendAll(records));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to task log", e);
+        }
+    }
+    
+    @Override
+    public void awaitDurable(long sequence) {
+        if (taskJournal == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Trace.run("storage.sync_task_log", () -> taskJournal.awaitDurable(sequence));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync task log", e);
+        } finally {
+            SYNC_TASK_LOG_TIME.recordSince(start);
+        }
+    }
+    
+    private long appendToTaskLog(TaskJournal.Record record) {
+        if (taskJournal == null) {
+            throw new IllegalStateException("Write-ahead log is not enabled");
+        }
+        try {
+            return Trace.call("storage.append_task_log", () -> taskJournal.append(record));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to task log", e);
+        }
+    }
+    
+    /**
+     * Fold tasks.log into a fresh tasks.txt snapshot.
+     * The snapshot is swapped in atomically, so a crash never leaves a partial tasks.txt.
+     */
+    public void compactTasks(Supplier<List<Task>> currentTasks) {
+        long start = System.nanoTime();
+        try {
+            taskJournal.compact(() -> tasksFile.write(currentTasks.get()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact task log", e);
+        } finally {
+            COMPACT_TASK_LOG_TIME.recordSince(start);
+        }
+    }
+    
+    @Override
+    public void open(Supplier<List<Task>> currentTasks) {
+        startTaskCompactor(currentTasks, LOG_COMPACTION_INTERVAL_SECONDS);
+    }
+    
+    /**
+     * Start the background compactor that periodically folds tasks.log into tasks.txt
+     */
+    public synchronized void startTaskCompactor(Supplier<List<Task>> currentTasks, long intervalSeconds) {
+        if (taskJournal == null || taskCompactor != null) {
+            return;
+        }
+        taskCompactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        taskCompactor.scheduleWithFixedDelay(() -> {
+            try {
+                compactTasks(currentTasks);
+            } catch (RuntimeException e) {
+                System.err.println("Error compacting task log: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Stop the compactor, fold any remaining log records and close tasks.log
+     */
+    @Override
+    public synchronized void close(Supplier<List<Task>> currentTasks) {
+        try {
+            compactSubscriptions();
+            subscriptionJournal.close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error closing subscription log: " + e.getMessage());
+        }
+        if (taskJournal == null) {
+            return;
+        }
+        if (taskCompactor != null) {
+            taskCompactor.shutdown();
+            taskCompactor = null;
+        }
+        compactTasks(currentTasks);
+        try {
+            taskJournal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing task log: " + e.getMessage());
         }
     }
     
     // Subscriber operations
+    @Override
     public List<String> loadSubscribers() {
         try {
-            String content = Files.readString(Paths.get(SUBSCRIBERS_FILE));
-            if (content.trim().isEmpty()) {
-                return new ArrayList<>();
-            }
-            return objectMapper.readValue(content, new TypeReference<List<String>>() {});
+            return subscriptionJournal.read(records ->
+                    SubscriptionJournal.applySubscribers(subscribersFile.read(), records));
         } catch (IOException e) {
             System.err.println("Error loading subscribers: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
+    @Override
     public void saveSubscribers(List<String> subscribers) {
         try {
-            String json = objectMapper.writeValueAsString(subscribers);
-            Files.write(Paths.get(SUBSCRIBERS_FILE), json.getBytes());
+            foldSubscriptions(subscribers, null);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save subscribers", e);
         }
     }
     
+    // Single-subscriber changes append one line to the log instead of rewriting the file
+    @Override
+    public boolean addSubscriber(String email) {
+        boolean added;
+        try {
+            added = subscriptionJournal.appendIf(new SubscriptionJournal.Record(SubscriptionJournal.OP_SUBSCRIBE, email),
+                    records -> !SubscriptionJournal.applySubscribers(subscribersFile.read(), records).contains(email));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to add subscriber", e);
+        }
+        compactSubscriptionsIfLong();
+        return added;
+    }
+    
+    @Override
+    public boolean removeSubscriber(String email) {
+        boolean removed;
+        try {
+            removed = subscriptionJournal.appendIf(new SubscriptionJournal.Record(SubscriptionJournal.OP_UNSUBSCRIBE, email),
+                    records -> SubscriptionJournal.applySubscribers(subscribersFile.read(), records).contains(email));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove subscriber", e);
+        }
+        compactSubscriptionsIfLong();
+        return removed;
+    }
+    
     // Pending subscription operations
+    @Override
     public Map<String, PendingSubscription> loadPendingSubscriptions() {
         try {
-            String content = Files.readString(Paths.get(PENDING_SUBSCRIPTIONS_FILE));
-            if (content.trim().isEmpty()) {
-                return new HashMap<>();
-            }
-            return objectMapper.readValue(content, new TypeReference<Map<String, PendingSubscription>>() {});
+            return subscriptionJournal.read(records ->
+                    SubscriptionJournal.applyPending(pendingSubscriptionsFile.read(), records));
         } catch (IOException e) {
             System.err.println("Error loading pending subscriptions: " + e.getMessage());
             return new HashMap<>();
         }
     }
     
+    @Override
     public void savePendingSubscriptions(Map<String, PendingSubscription> pendingSubscriptions) {
         try {
-            String json = objectMapper.writeValueAsString(pendingSubscriptions);
-            Files.write(Paths.get(PENDING_SUBSCRIPTIONS_FILE), json.getBytes());
+            foldSubscriptions(null, pendingSubscriptions);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save pending subscriptions", e);
         }
     }
-}
\ No newline at end of file
+    
+    @Override
+    public void savePendingSubscription(String email, PendingSubscription pendingSubscription) {
+        try {
+            subscriptionJournal.append(SubscriptionJournal.Record.pending(email, pendingSubscription));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save pending subscription", e);
+        }
+        compactSubscriptionsIfLong();
+    }
+    
+    @Override
+    public void removePendingSubscription(String email) {
+        try {
+            subscriptionJournal.append(new SubscriptionJournal.Record(SubscriptionJournal.OP_PENDING_DONE, email));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to remove pending subscription", e);
+        }
+        compactSubscriptionsIfLong();
+    }
+    
+    /**
+     * Fold subscriptions.log into the subscriber and pending subscription files
+     */
+    public void compactSubscriptions() {
+        try {
+            subscriptionJournal.compact(records -> {
+                if (!records.isEmpty()) {
+                    writeSubscriptionSnapshots(null, null, records);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact subscription log", e);
+        }
+    }
+    
+    // The change is already durable in the log, so a failed fold is only reported
+    private void compactSubscriptionsIfLong() {
+        if (subscriptionJournal.getRecordCount() < SUBSCRIPTION_LOG_FOLD_RECORDS) {
+            return;
+        }
+        try {
+            compactSubscriptions();
+        } catch (RuntimeException e) {
+            System.err.println("Error compacting subscription log: " + e.getMessage());
+        }
+    }
+    
+    // Replace the subscribers or the pending subscriptions outright (null keeps the stored
+    // ones with the log applied); the log is emptied either way
+    private void foldSubscriptions(List<String> subscribers,
+                                   Map<String, PendingSubscription> pendingSubscriptions) throws IOException {
+        subscriptionJournal.compact(records -> writeSubscriptionSnapshots(subscribers, pendingSubscriptions, records));
+    }
+    
+    private void writeSubscriptionSnapshots(List<String> subscribers, Map<String, PendingSubscription> pendingSubscriptions,
+                                            List<SubscriptionJournal.Record> records) throws IOException {
+        subscribersFile.write(subscribers != null ? subscribers
+                : SubscriptionJournal.applySubscribers(subscribersFile.read(), records));
+        pendingSubscriptionsFile.write(pendingSubscriptions != null ? pendingSubscriptions
+                : SubscriptionJournal.applyPending(pendingSubscriptionsFile.read(), records));
+    }
+    
+    // JSON import/export, for binary snapshot mode
+    /**
+     * Replace the stored tasks and subscribers with the content of tasks.txt and subscribers.txt
+     */
+    public void importJson() {
+        importTasks();
+        try {
+            // Logged subscriber changes predate the import, so they are dropped with the old list
+            foldSubscriptions(subscribersJsonFile.read(), null);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to import JSON subscribers", e);
+        }
+    }
+    
+    private void importTasks() {
+        try {
+            tasksFile.write(tasksJsonFile.read());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to import JSON tasks", e);
+        }
+    }
+    
+    private void importSubscribers() {
+        try {
+            subscribersFile.write(subscribersJsonFile.read());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to import JSON subscribers", e);
+        }
+    }
+    
+    /**
+     * Write the stored tasks and subscribers out to tasks.txt and subscribers.txt,
+     * including changes still in tasks.log and subscriptions.log
+     */
+    public void exportJson() {
+        try {
+            tasksJsonFile.write(loadTasks());
+            subscribersJsonFile.write(loadSubscribers());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to export JSON data", e);
+        }
+    }
+    
+    // Reminder outbox operations
+    /**
+     * Open the durable reminder outbox (outbox.log), replaying any run that did not finish.
+     * The caller owns the returned outbox and must close it; only one process can hold it open.
+     */
+    public ReminderOutbox openReminderOutbox() {
+        try {
+            return new ReminderOutbox(Paths.get(REMINDER_OUTBOX_FILE), objectMapper);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open reminder outbox", e);
+        }
+    }
+    
+    // Parsed tasks are mutable, so cached and returned lists never share instances
+    private static List<Task> copyTasks(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            copies.add(new Task(task));
+        }
+        return copies;
+    }
+}
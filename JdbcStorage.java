@@ -0,0 +1,408 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskscheduler.model.PendingSubscription;
+import com.taskscheduler.model.Task;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Storage backend on an embedded H2 database
+ *
+ * Every task change is one indexed UPDATE, INSERT or DELETE instead of a
+ * whole-file rewrite, and single tasks, subscribers and pending
+ * subscriptions can be read by key. Connections come from a small
+ * HikariCP pool and all statements are prepared.
+ */
+public class JdbcStorage implements Storage {
+    // AUTO_SERVER lets the CRON job's JVM share the file; WRITE_DELAY=0 writes each commit out immediately
+    private static final String DEFAULT_URL = "jdbc:h2:./src/main/resources/data/taskscheduler;AUTO_SERVER=TRUE;WRITE_DELAY=0";
+    private static final int DEFAULT_POOL_SIZE = 8;
+    
+    private static final String TASK_COLUMNS = "id, name, completed, priority, due_time, recurrence";
+    
+    private final HikariDataSource dataSource;
+    private final ObjectMapper objectMapper;
+    
+    public JdbcStorage() {
+        this(DEFAULT_URL, DEFAULT_POOL_SIZE);
+    }
+    
+    /**
+     * @param jdbcUrl  database URL, e.g. "jdbc:h2:/var/lib/taskscheduler/data"
+     * @param poolSize maximum number of pooled connections
+     */
+    public JdbcStorage(String jdbcUrl, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setMaximumPoolSize(poolSize);
+        config.setPoolName("task-storage");
+        this.dataSource = new HikariDataSource(config);
+        this.objectMapper = new ObjectMapper();
+        createSchema();
+    }
+    
+    private void createSchema() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            // seq keeps insertion order, which TaskManager exposes as list order
+            statement.execute("CREATE TABLE IF NOT EXISTS tasks ("
+                    + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "id VARCHAR(64) NOT NULL UNIQUE, "
+                    + "name VARCHAR NOT NULL, "
+                    + "completed BOOLEAN NOT NULL, "
+                    + "priority INT NOT NULL, "
+                    + "due_time BIGINT, "
+                    + "recurrence VARCHAR(64))");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_pending ON tasks (completed, due_time)");
+            // Names have no length limit; widen the VARCHAR(1000) column of databases created before
+            try (ResultSet rows = statement.executeQuery("SELECT CHARACTER_MAXIMUM_LENGTH FROM INFORMATION_SCHEMA.COLUMNS"
+                    + " WHERE TABLE_NAME = 'TASKS' AND COLUMN_NAME = 'NAME'")) {
+                if (rows.next() && rows.getLong(1) == 1000) {
+                    statement.execute("ALTER TABLE tasks ALTER COLUMN name SET DATA TYPE VARCHAR");
+                }
+            }
+            statement.execute("CREATE TABLE IF NOT EXISTS subscribers ("
+                    + "email VARCHAR(320) PRIMARY KEY, "
+                    + "added_at BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS pending_subscriptions ("
+                    + "email VARCHAR(320) PRIMARY KEY, "
+                    + "data VARCHAR(4000) NOT NULL)");
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialize database", e);
+        }
+    }
+    
+    // Task operations
+    @Override
+    public List<Task> loadTasks() {
+        List<Task> tasks = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT " + TASK_COLUMNS + " FROM tasks ORDER BY seq");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                tasks.add(readTask(rows));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading tasks: " + e.getMessage());
+        }
+        return tasks;
+    }
+    
+    @Override
+    public Task loadTask(String taskId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT " + TASK_COLUMNS + " FROM tasks WHERE id = ?")) {
+            statement.setString(1, taskId);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? readTask(rows) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load task", e);
+        }
+    }
+    
+    @Override
+    public void saveTasks(List<Task> tasks) {
+        inTransaction("Failed to save tasks", connection -> {
+            try (Statement delete = connection.createStatement()) {
+                delete.executeUpdate("DELETE FROM tasks");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO tasks (" + TASK_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (Task task : tasks) {
+                    bindTask(insert, task);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+    
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+    
+    // Each change commits before returning, so there is never anything left to wait for
+    @Override
+    public long taskAdded(Task task) {
+        return taskBatch(List.of(TaskChange.added(task)));
+    }
+    
+    @Override
+    public long taskCompleted(Task task) {
+        return taskBatch(List.of(TaskChange.completed(task)));
+    }
+    
+    @Override
+    public long taskScheduled(Task task) {
+        return taskBatch(List.of(TaskChange.scheduled(task)));
+    }
+    
+    @Override
+    public long taskDeleted(String taskId) {
+        return taskBatch(List.of(TaskChange.deleted(taskId)));
+    }
+    
+    @Override
+    public long taskBatch(List<TaskChange> changes) {
+        inTransaction("Failed to save task changes", connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO tasks (" + TASK_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement complete = connection.prepareStatement(
+                         "UPDATE tasks SET completed = ?, due_time = COALESCE(?, due_time) WHERE id = ?");
+                 PreparedStatement schedule = connection.prepareStatement(
+                         "UPDATE tasks SET priority = ?, due_time = ?, recurrence = ? WHERE id = ?");
+                 PreparedStatement delete = connection.prepareStatement(
+                         "DELETE FROM tasks WHERE id = ?")) {
+                // Statements run in change order; a batch may add a task and then change it
+                for (TaskChange change : changes) {
+                    if (change instanceof TaskChange.Added added) {
+                        bindTask(insert, added.task());
+                        insert.executeUpdate();
+                    } else if (change instanceof TaskChange.Completed completed) {
+                        complete.setBoolean(1, completed.completed());
+                        setLong(complete, 2, completed.dueTime());
+                        complete.setString(3, completed.taskId());
+                        complete.executeUpdate();
+                    } else if (change instanceof TaskChange.Scheduled scheduled) {
+                        schedule.setInt(1, scheduled.priority());
+                        setLong(schedule, 2, scheduled.dueTime());
+                        schedule.setString(3, scheduled.recurrence());
+                        schedule.setString(4, scheduled.taskId());
+                        schedule.executeUpdate();
+                    } else if (change instanceof TaskChange.Deleted) {
+                        delete.setString(1, change.taskId());
+                        delete.executeUpdate();
+                    }
+                }
+            }
+        });
+        return 0;
+    }
+    
+    @Override
+    public void close(Supplier<List<Task>> currentTasks) {
+        dataSource.close();
+    }
+    
+    // Subscriber operations
+    @Override
+    public List<String> loadSubscribers() {
+        List<String> subscribers = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT email FROM subscribers ORDER BY added_at, email");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                subscribers.add(rows.getString(1));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading subscribers: " + e.getMessage());
+        }
+        return subscribers;
+    }
+    
+    @Override
+    public void saveSubscribers(List<String> subscribers) {
+        inTransaction("Failed to save subscribers", connection -> {
+            try (Statement delete = connection.createStatement()) {
+                delete.executeUpdate("DELETE FROM subscribers");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO subscribers (email, added_at) VALUES (?, ?)")) {
+                long order = 0;
+                for (String email : subscribers) {
+                    insert.setString(1, email);
+                    insert.setLong(2, order++);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+    
+    @Override
+    public boolean isSubscribed(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT 1 FROM subscribers WHERE email = ?")) {
+            statement.setString(1, email);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to look up subscriber", e);
+        }
+    }
+    
+    @Override
+    public boolean addSubscriber(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO subscribers (email, added_at) VALUES (?, ?)")) {
+            statement.setString(1, email);
+            statement.setLong(2, System.currentTimeMillis());
+            statement.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false; // Already subscribed
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to add subscriber", e);
+        }
+    }
+    
+    @Override
+    public boolean removeSubscriber(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM subscribers WHERE email = ?")) {
+            statement.setString(1, email);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to remove subscriber", e);
+        }
+    }
+    
+    // Pending subscription operations; the model is stored as JSON so it can evolve without a migration
+    @Override
+    public Map<String, PendingSubscription> loadPendingSubscriptions() {
+        Map<String, PendingSubscription> pendingSubscriptions = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT email, data FROM pending_subscriptions");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                pendingSubscriptions.put(rows.getString(1),
+                        objectMapper.readValue(rows.getString(2), PendingSubscription.class));
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Error loading pending subscriptions: " + e.getMessage());
+        }
+        return pendingSubscriptions;
+    }
+    
+    @Override
+    public void savePendingSubscriptions(Map<String, PendingSubscription> pendingSubscriptions) {
+        inTransaction("Failed to save pending subscriptions", connection -> {
+            try (Statement delete = connection.createStatement()) {
+                delete.executeUpdate("DELETE FROM pending_subscriptions");
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO pending_subscriptions (email, data) VALUES (?, ?)")) {
+                for (Map.Entry<String, PendingSubscription> entry : pendingSubscriptions.entrySet()) {
+                    insert.setString(1, entry.getKey());
+                    insert.setString(2, objectMapper.writeValueAsString(entry.getValue()));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+    
+    @Override
+    public PendingSubscription loadPendingSubscription(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT data FROM pending_subscriptions WHERE email = ?")) {
+            statement.setString(1, email);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? objectMapper.readValue(rows.getString(1), PendingSubscription.class) : null;
+            }
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Failed to load pending subscription", e);
+        }
+    }
+    
+    @Override
+    public void savePendingSubscription(String email, PendingSubscription pendingSubscription) {
+        inTransaction("Failed to save pending subscription", connection -> {
+            try (PreparedStatement delete = connection.prepareStatement(
+                         "DELETE FROM pending_subscriptions WHERE email = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO pending_subscriptions (email, data) VALUES (?, ?)")) {
+                delete.setString(1, email);
+                delete.executeUpdate();
+                insert.setString(1, email);
+                insert.setString(2, objectMapper.writeValueAsString(pendingSubscription));
+                insert.executeUpdate();
+            }
+        });
+    }
+    
+    @Override
+    public void removePendingSubscription(String email) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM pending_subscriptions WHERE email = ?")) {
+            statement.setString(1, email);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to remove pending subscription", e);
+        }
+    }
+    
+    // Helper methods
+    @FunctionalInterface
+    private interface TransactionBody {
+        void run(Connection connection) throws SQLException, IOException;
+    }
+    
+    private void inTransaction(String failureMessage, TransactionBody body) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                body.run(connection);
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException(failureMessage, e);
+        }
+    }
+    
+    private static Task readTask(ResultSet rows) throws SQLException {
+        long dueTime = rows.getLong(5);
+        Long due = rows.wasNull() ? null : dueTime;
+        return new Task(rows.getString(1), rows.getString(2), rows.getBoolean(3), rows.getInt(4),
+                due, rows.getString(6));
+    }
+    
+    private static void bindTask(PreparedStatement statement, Task task) throws SQLException {
+        statement.setString(1, task.getId());
+        statement.setString(2, task.getName());
+        statement.setBoolean(3, task.isCompleted());
+        statement.setInt(4, task.getPriority());
+        setLong(statement, 5, task.getDueTime());
+        statement.setString(6, task.getRecurrence());
+    }
+    
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value != null) {
+            statement.setLong(index, value);
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskscheduler.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+import java.util.function.Consumer;
+
+/**
+ * Emits finished traces as JDK Flight Recorder events, next to JFR's own GC, lock and I/O events
+ *
+ * Costs one allocation and an enabled check per trace unless a recording is running
+ * (java -XX:StartFlightRecording=filename=rec.jfr ...). Events are emitted when the
+ * trace ends, so their JFR start time and duration are those of the emit; the
+ * "Start" and "Elapsed" fields hold the real timing. Filter slow requests in JMC
+ * on Elapsed, or set a minimum with thresholdMillis.
+ */
+public class JfrTraceSink implements Consumer<Trace> {
+    private final long thresholdNanos;
+    
+    public JfrTraceSink() {
+        this(0);
+    }
+    
+    /**
+     * @param thresholdMillis traces faster than this are not emitted
+     */
+    public JfrTraceSink(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+    
+    @Override
+    public void accept(Trace trace) {
+        long duration = trace.getDurationNanos();
+        if (duration < thresholdNanos) {
+            return;
+        }
+        RequestEvent request = new RequestEvent();
+        if (!request.isEnabled()) {
+            return;
+        }
+        request.requestId = trace.getId();
+        request.name = trace.getName();
+        request.status = trace.getStatus();
+        request.start = trace.getStartMillis();
+        request.elapsed = duration;
+        request.commit();
+        
+        for (Trace.Span span : trace.getSpans()) {
+            StageEvent stage = new StageEvent();
+            stage.requestId = trace.getId();
+            stage.stage = span.getStage();
+            stage.depth = span.getDepth();
+            stage.offset = span.getOffsetNanos();
+            stage.elapsed = span.getDurationNanos();
+            stage.commit();
+        }
+    }
+    
+    @Name("taskscheduler.Request")
+    @Label("Request")
+    @Category({"Task Scheduler", "Tracing"})
+    @Description("A traced request")
+    @StackTrace(false)
+    static class RequestEvent extends Event {
+        @Label("Request Id")
+        String requestId;
+        
+        @Label("Name")
+        String name;
+        
+        @Label("Status")
+        int status;
+        
+        @Label("Start")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long start;
+        
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+    
+    @Name("taskscheduler.Stage")
+    @Label("Request Stage")
+    @Category({"Task Scheduler", "Tracing"})
+    @Description("One timed stage of a traced request")
+    @StackTrace(false)
+    static class StageEvent extends Event {
+        @Label("Request Id")
+        String requestId;
+        
+        @Label("Stage")
+        String stage;
+        
+        @Label("Depth")
+        int depth;
+        
+        @Label("Offset")
+        @Timespan(Timespan.NANOSECONDS)
+        long offset;
+        
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
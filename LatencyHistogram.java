@@ -0,0 +1,128 @@
+package com.taskscheduler.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in nanoseconds with log-linear buckets
+ *
+ * Every power of two is split into 8 equal sub-buckets (the HdrHistogram
+ * layout), so any value from 1 ns to Long.MAX_VALUE is kept to within 12.5%
+ * in a fixed array of 488 counters. Recording is one array increment and one
+ * LongAdder add, with no locks and no allocation.
+ *
+ * Reads are not atomic across buckets: a value recorded during a read may or
+ * may not be included, but every count is eventually seen.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumNanos = new LongAdder();
+    
+    public LatencyHistogram() {}
+    
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        sumNanos.add(nanos);
+    }
+    
+    /**
+     * Record the time elapsed since a System.nanoTime() reading
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+    
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+    
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+    
+    /**
+     * Highest value recorded at the given percentile (0-100), or 0 if nothing was recorded.
+     * Reported as the top of its bucket, so it never understates a latency.
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestIn(i);
+            }
+        }
+        return highestIn(BUCKETS - 1);
+    }
+    
+    /**
+     * Cumulative counts of values at or below each bound, plus the total count last.
+     * A bucket straddling a bound is counted under the next bound up.
+     */
+    long[] cumulativeCounts(long[] boundsNanos) {
+        long[] cumulative = new long[boundsNanos.length + 1];
+        int bound = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count == 0) {
+                continue;
+            }
+            while (bound < boundsNanos.length && highestIn(i) > boundsNanos[bound]) {
+                cumulative[bound++] = seen;
+            }
+            seen += count;
+        }
+        while (bound < boundsNanos.length) {
+            cumulative[bound++] = seen;
+        }
+        cumulative[boundsNanos.length] = seen;
+        return cumulative;
+    }
+    
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+    
+    // Values below SUB_BUCKETS get a bucket each; above, the top bit picks the range and the next 3 bits the sub-bucket
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+    
+    private static long highestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
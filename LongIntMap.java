@@ -0,0 +1,124 @@
+package com.taskscheduler.service;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing long -> int hash map without boxing
+ *
+ * Linear probing with backward-shift deletion, so removals leave no
+ * tombstones behind. Long.MIN_VALUE marks an empty cell and cannot be
+ * used as a key. Not thread-safe.
+ */
+final class LongIntMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    
+    LongIntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+    
+    int get(long key, int missing) {
+        int mask = keys.length - 1;
+        for (int cell = hash(key) & mask; ; cell = (cell + 1) & mask) {
+            if (keys[cell] == key) {
+                return values[cell];
+            }
+            if (keys[cell] == EMPTY) {
+                return missing;
+            }
+        }
+    }
+    
+    boolean containsKey(long key) {
+        int mask = keys.length - 1;
+        for (int cell = hash(key) & mask; ; cell = (cell + 1) & mask) {
+            if (keys[cell] == key) {
+                return true;
+            }
+            if (keys[cell] == EMPTY) {
+                return false;
+            }
+        }
+    }
+    
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int cell = hash(key) & mask;
+        while (keys[cell] != EMPTY && keys[cell] != key) {
+            cell = (cell + 1) & mask;
+        }
+        if (keys[cell] == EMPTY) {
+            keys[cell] = key;
+            size++;
+        }
+        values[cell] = value;
+    }
+    
+    int remove(long key, int missing) {
+        int mask = keys.length - 1;
+        int cell = hash(key) & mask;
+        while (keys[cell] != key) {
+            if (keys[cell] == EMPTY) {
+                return missing;
+            }
+            cell = (cell + 1) & mask;
+        }
+        int removed = values[cell];
+        size--;
+        
+        // Pull later entries of the probe run back so lookups never stop at the gap
+        int gap = cell;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        return removed;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+    
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
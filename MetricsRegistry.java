@@ -0,0 +1,229 @@
+package com.taskscheduler.service;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named counters, gauges and latency histograms, exported as Prometheus text
+ *
+ * Metrics are created on first use and looked up by name and labels, so
+ * call sites fetch them once (into a field) and then only record. Labels are
+ * given as name/value pairs and should come from a small fixed set: every
+ * distinct combination is kept for the life of the process.
+ *
+ * Components record into {@link #getDefault()}; WebServer serves it on /metrics.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    
+    // Prometheus bucket bounds for latency histograms, in seconds
+    private static final String[] BUCKET_LABELS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01",
+            "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10"
+    };
+    private static final long[] BUCKET_NANOS = new long[BUCKET_LABELS.length];
+    
+    static {
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            BUCKET_NANOS[i] = (long) (Double.parseDouble(BUCKET_LABELS[i]) * 1_000_000_000L);
+        }
+    }
+    
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+        
+        private final String exposition;
+        
+        Type(String exposition) {
+            this.exposition = exposition;
+        }
+    }
+    
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    
+    /**
+     * The registry the application records into
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+    
+    /**
+     * @param labels label names and values, alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).children
+                .computeIfAbsent(labelString(labels), key -> new Counter());
+    }
+    
+    /**
+     * Count kept elsewhere (a JMX bean, say), read at export time; it must never decrease
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).children.put(labelString(labels), value);
+    }
+    
+    /**
+     * Latency histogram, exported in seconds
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.HISTOGRAM).children
+                .computeIfAbsent(labelString(labels), key -> new LatencyHistogram());
+    }
+    
+    /**
+     * Register a value read at export time. Registering the same name and labels again replaces the supplier.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).children.put(labelString(labels), value);
+    }
+    
+    /**
+     * Heap, GC and thread figures of this JVM, read from the platform MXBeans at export time.
+     * Safe to call more than once.
+     */
+    public void registerJvmMetrics() {
+        gauge("jvm_memory_used_bytes", "Memory in use", () -> heap().getUsed(), "area", "heap");
+        gauge("jvm_memory_committed_bytes", "Memory reserved by the JVM", () -> heap().getCommitted(), "area", "heap");
+        gauge("jvm_memory_max_bytes", "Largest size memory can grow to, or -1 if unbounded",
+                () -> heap().getMax(), "area", "heap");
+        // What survived the last collection of each pool: the live set, without garbage waiting to be collected
+        gauge("jvm_memory_used_after_gc_bytes", "Heap in use just after the most recent collection", () -> {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage afterGc = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                if (afterGc != null) {
+                    used += afterGc.getUsed();
+                }
+            }
+            return used;
+        }, "area", "heap");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            counter("jvm_gc_collections_total", "Collections run", gc::getCollectionCount, "gc", gc.getName());
+            counter("jvm_gc_collection_seconds_total", "Time spent in collections",
+                    () -> gc.getCollectionTime() / 1000.0, "gc", gc.getName());
+        }
+        gauge("jvm_threads_live", "Live threads", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+    
+    private static MemoryUsage heap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    }
+    
+    /**
+     * Every metric in the Prometheus text exposition format (version 0.0.4)
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            if (family.children.isEmpty()) {
+                continue;
+            }
+            out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.exposition).append('\n');
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                String labels = child.getKey();
+                Object metric = child.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, family.name, labels, null, ((Counter) metric).get());
+                } else if (metric instanceof DoubleSupplier) {
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) metric).getAsDouble();
+                    } catch (RuntimeException e) {
+                        value = Double.NaN;
+                    }
+                    sample(out, family.name, labels, null, value);
+                } else {
+                    writeHistogram(out, family.name, labels, (LatencyHistogram) metric);
+                }
+            }
+        }
+        return out.toString();
+    }
+    
+    private void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long sumNanos = histogram.getSumNanos();
+        long[] cumulative = histogram.cumulativeCounts(BUCKET_NANOS);
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            sample(out, name + "_bucket", labels, "le=\"" + BUCKET_LABELS[i] + "\"", cumulative[i]);
+        }
+        long count = cumulative[BUCKET_LABELS.length];
+        sample(out, name + "_bucket", labels, "le=\"+Inf\"", count);
+        sample(out, name + "_sum", labels, null, sumNanos / 1e9);
+        sample(out, name + "_count", labels, null, count);
+    }
+    
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, double value) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+    
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.exposition);
+        }
+        return family;
+    }
+    
+    // Rendered once per metric, in the order given: name="value",name="value"
+    private static String labelString(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escapeLabelValue(labels[i + 1])).append('"');
+        }
+        return rendered.toString();
+    }
+    
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+    
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+    
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        // Rendered labels -> Counter, LatencyHistogram or DoubleSupplier
+        private final Map<String, Object> children = new ConcurrentSkipListMap<>();
+        
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.taskscheduler.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Subscription waiting for its verification code to be confirmed
+ */
+public class PendingSubscription {
+    @JsonProperty("code")
+    private String code;
+    
+    // When the code was issued, in epoch seconds
+    @JsonProperty("timestamp")
+    private long timestamp;
+    
+    // Default constructor for JSON deserialization
+    public PendingSubscription() {}
+    
+    public PendingSubscription(String code, long timestamp) {
+        this.code = code;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters and setters
+    public String getCode() {
+        return code;
+    }
+    
+    public void setCode(String code) {
+        this.code = code;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return "PendingSubscription{" +
+                "code='" + code + '\'' +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,333 @@
+package com.taskscheduler.service;
+
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one reminder message per recipient over pooled SMTP connections
+ *
+ * A fixed number of sender threads each keep one connected Transport and send
+ * up to {@code messagesPerConnection} messages over it before reconnecting, so
+ * a reminder run costs one SMTP handshake per connection rather than one per
+ * subscriber. All senders share one rate limit. A message that fails with a
+ * transient error is retried with exponential backoff on a fresh connection;
+ * permanent failures (5xx replies, rejected addresses) are not retried.
+ */
+public class ReminderDelivery {
+    private static final int DEFAULT_SENDERS = 4;
+    private static final int DEFAULT_MESSAGES_PER_CONNECTION = 100;
+    private static final double DEFAULT_MESSAGES_PER_SECOND = 20;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+    
+    private static final LatencyHistogram SEND_TIME = MetricsRegistry.getDefault().histogram(
+            "taskscheduler_email_send_seconds", "Time for one SMTP send attempt, not counting connecting");
+    private static final Counter SENT = MetricsRegistry.getDefault().counter(
+            "taskscheduler_email_sent_total", "Reminder messages accepted by the SMTP server");
+    private static final Counter FAILED = MetricsRegistry.getDefault().counter(
+            "taskscheduler_email_failed_total", "Reminder messages given up on");
+    private static final Counter RETRIED = MetricsRegistry.getDefault().counter(
+            "taskscheduler_email_retries_total", "Send attempts that failed transiently and were queued again");
+    
+    /**
+     * Builds the message for one recipient; called on a sender thread
+     */
+    public interface MessageFactory {
+        MimeMessage create(Session session, String recipient) throws MessagingException;
+    }
+    
+    /**
+     * Told about each recipient's final outcome as it happens; called on a sender thread
+     */
+    public interface Listener {
+        void onSent(String recipient);
+        
+        void onFailed(String recipient, String error);
+    }
+    
+    private final Session session;
+    private final int senders;
+    private final int messagesPerConnection;
+    private final long nanosPerMessage;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    
+    private final Object rateLock = new Object();
+    private long nextSendNanos; // guarded by rateLock
+    
+    public ReminderDelivery(Session session) {
+        this(session, DEFAULT_SENDERS, DEFAULT_MESSAGES_PER_CONNECTION, DEFAULT_MESSAGES_PER_SECOND,
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS);
+    }
+    
+    /**
+     * @param session               SMTP session; host, port and auth come from its properties
+     * @param senders               parallel sender threads, and so open connections
+     * @param messagesPerConnection messages sent over one connection before it is recycled
+     * @param messagesPerSecond     combined rate across all senders; 0 or less for no limit
+     * @param maxAttempts           attempts per message, including the first
+     * @param initialBackoffMillis  delay before the first retry; doubled for each later one
+     */
+    public ReminderDelivery(Session session, int senders, int messagesPerConnection, double messagesPerSecond,
+                            int maxAttempts, long initialBackoffMillis) {
+        if (senders <= 0 || messagesPerConnection <= 0 || maxAttempts <= 0 || initialBackoffMillis < 0) {
+            throw new IllegalArgumentException("Invalid delivery settings");
+        }
+        this.session = session;
+        this.senders = senders;
+        this.messagesPerConnection = messagesPerConnection;
+        this.nanosPerMessage = messagesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / messagesPerSecond) : 0;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+    
+    /**
+     * Send a message to every recipient and block until each one is sent or has failed
+     */
+    public Report deliver(List<String> recipients, MessageFactory messageFactory) {
+        return deliver(recipients, messageFactory, null);
+    }
+    
+    /**
+     * Send a message to every recipient, reporting each outcome to the listener as soon as it is known
+     */
+    public Report deliver(List<String> recipients, MessageFactory messageFactory, Listener listener) {
+        Report report = new Report();
+        if (recipients.isEmpty()) {
+            return report;
+        }
+        
+        DelayQueue<Attempt> queue = new DelayQueue<>();
+        for (String recipient : recipients) {
+            queue.add(new Attempt(recipient, 1, 0));
+        }
+        AtomicInteger remaining = new AtomicInteger(recipients.size());
+        
+        int threads = Math.min(senders, recipients.size());
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "reminder-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A caller's trace follows the work onto the sender threads
+        Trace.run("email.deliver", () -> {
+            for (int i = 0; i < threads; i++) {
+                pool.execute(Trace.wrap(() -> sendLoop(queue, remaining, messageFactory, listener, report)));
+            }
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        });
+        return report;
+    }
+    
+    private void sendLoop(DelayQueue<Attempt> queue, AtomicInteger remaining,
+                          MessageFactory messageFactory, Listener listener, Report report) {
+        Transport transport = null;
+        int sentOnConnection = 0;
+        try {
+            while (remaining.get() > 0) {
+                // Timed poll so idle senders notice when the last retry elsewhere finishes
+                Attempt attempt = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (attempt == null) {
+                    continue;
+                }
+                
+                MimeMessage message;
+                try {
+                    message = messageFactory.create(session, attempt.recipient);
+                    message.saveChanges();
+                } catch (MessagingException | RuntimeException e) {
+                    System.err.println("Error building reminder for " + attempt.recipient + ": " + e.getMessage());
+                    failed(attempt.recipient, e, listener, report);
+                    remaining.decrementAndGet();
+                    continue;
+                }
+                
+                long start = 0;
+                boolean sending = false;
+                try {
+                    if (transport == null || sentOnConnection >= messagesPerConnection || !transport.isConnected()) {
+                        close(transport);
+                        transport = session.getTransport("smtp");
+                        Trace.run("email.connect", transport::connect);
+                        sentOnConnection = 0;
+                    }
+                    acquirePermit();
+                    start = System.nanoTime();
+                    sending = true;
+                    Transport sender = transport;
+                    Trace.run("email.send", () -> sender.sendMessage(message, message.getAllRecipients()));
+                    SEND_TIME.recordSince(start);
+                    sentOnConnection++;
+                    sent(attempt.recipient, listener, report);
+                    remaining.decrementAndGet();
+                } catch (MessagingException e) {
+                    // Failed sends are timed too; a failed connect is not
+                    if (sending) {
+                        SEND_TIME.recordSince(start);
+                    }
+                    // The connection state is unknown after a failure; start the next message on a new one
+                    close(transport);
+                    transport = null;
+                    if (isPermanent(e) || attempt.number >= maxAttempts) {
+                        System.err.println("Error sending reminder to " + attempt.recipient + ": " + e.getMessage());
+                        failed(attempt.recipient, e, listener, report);
+                        remaining.decrementAndGet();
+                    } else {
+                        RETRIED.increment();
+                        queue.add(new Attempt(attempt.recipient, attempt.number + 1, backoffMillis(attempt.number)));
+                    }
+                } catch (RuntimeException e) {
+                    // Not an SMTP error, so retrying is unlikely to help; every attempt
+                    // must still be counted off or deliver() would wait forever
+                    if (sending) {
+                        SEND_TIME.recordSince(start);
+                    }
+                    close(transport);
+                    transport = null;
+                    System.err.println("Error sending reminder to " + attempt.recipient + ": " + e);
+                    failed(attempt.recipient, e, listener, report);
+                    remaining.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+        }
+    }
+    
+    private static void sent(String recipient, Listener listener, Report report) {
+        SENT.increment();
+        report.sent.add(recipient);
+        if (listener != null) {
+            try {
+                listener.onSent(recipient);
+            } catch (RuntimeException e) {
+                System.err.println("Error in delivery listener: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static void failed(String recipient, Exception cause, Listener listener, Report report) {
+        FAILED.increment();
+        report.failed.add(recipient);
+        if (listener != null) {
+            try {
+                listener.onFailed(recipient, cause.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Error in delivery listener: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Reserve the next send slot under the lock, then sleep until it outside the lock
+    private void acquirePermit() throws InterruptedException {
+        if (nanosPerMessage == 0) {
+            return;
+        }
+        long slot;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            slot = Math.max(now, nextSendNanos);
+            nextSendNanos = slot + nanosPerMessage;
+        }
+        long waitNanos = slot - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+    
+    // Exponential backoff with up to 50% jitter so retries from parallel senders spread out
+    private long backoffMillis(int failedAttempts) {
+        long base = initialBackoffMillis << Math.min(failedAttempts - 1, 20);
+        return base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+    
+    private static boolean isPermanent(MessagingException e) {
+        if (e instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) e).getReturnCode() >= 500;
+        }
+        if (e instanceof SendFailedException) {
+            SendFailedException failure = (SendFailedException) e;
+            if (failure.getInvalidAddresses() != null && failure.getInvalidAddresses().length > 0) {
+                return true;
+            }
+            Exception next = failure.getNextException();
+            return next instanceof SMTPAddressFailedException
+                    && ((SMTPAddressFailedException) next).getReturnCode() >= 500;
+        }
+        return false;
+    }
+    
+    private static void close(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            // Connection is being discarded either way
+        }
+    }
+    
+    /**
+     * Outcome of one delivery run
+     */
+    public static class Report {
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        
+        public List<String> getSent() {
+            return new ArrayList<>(sent);
+        }
+        
+        public List<String> getFailed() {
+            return new ArrayList<>(failed);
+        }
+    }
+    
+    private static final class Attempt implements Delayed {
+        private final String recipient;
+        private final int number;
+        private final long readyNanos;
+        
+        private Attempt(String recipient, int number, long delayMillis) {
+            this.recipient = recipient;
+            this.number = number;
+            this.readyNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyNanos, ((Attempt) other).readyNanos);
+        }
+    }
+}
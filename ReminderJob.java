@@ -0,0 +1,48 @@
+package com.taskscheduler.service;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * The reminder run: email every verified subscriber the current pending tasks
+ *
+ * Goes through the outbox, keyed by the run's scheduled time, so a run that is
+ * interrupted or re-fired after a misfire never emails a subscriber twice.
+ */
+public class ReminderJob implements CronService.Job {
+    private final FileStorage fileStorage;
+    private final TaskManager taskManager;
+    private final ReminderTemplate template;
+    private final ReminderDelivery delivery;
+    private final String fromAddress;
+    
+    public ReminderJob(FileStorage fileStorage, TaskManager taskManager, ReminderTemplate template,
+                       ReminderDelivery delivery, String fromAddress) {
+        this.fileStorage = fileStorage;
+        this.taskManager = taskManager;
+        this.template = template;
+        this.delivery = delivery;
+        this.fromAddress = fromAddress;
+    }
+    
+    @Override
+    public void run(ZonedDateTime scheduledTime) throws Exception {
+        try (ReminderOutbox outbox = fileStorage.openReminderOutbox()) {
+            List<String> subscribers = fileStorage.loadSubscribers();
+            if (taskManager.getPendingTasks(1).isEmpty()) {
+                System.out.println("No pending tasks to remind about.");
+            } else if (!subscribers.isEmpty()) {
+                String runId = scheduledTime.truncatedTo(ChronoUnit.MINUTES).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+                outbox.enqueue(runId, subscribers);
+            }
+            // Also picks up anything an earlier, interrupted run left queued
+            if (outbox.getPendingCount() > 0) {
+                ReminderDelivery.Report report = outbox.drain(delivery, template.messageFactory(fromAddress));
+                System.out.println("Sent " + report.getSent().size() + " reminders, "
+                        + report.getFailed().size() + " failed.");
+            }
+        }
+    }
+}
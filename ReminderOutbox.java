@@ -0,0 +1,258 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.mail.internet.MimeMessage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable queue of outgoing reminder messages (outbox.log)
+ *
+ * A reminder run first records one "queued" line per recipient, then appends
+ * "sent" or "failed" as each message finishes; every line is forced to disk
+ * before the run moves on. If the process dies mid-run, the next one replays
+ * the log and sends only what is still queued. Each message carries an
+ * idempotency key (run id + recipient), so re-enqueueing the same run never
+ * queues a recipient twice. Delivery is at-least-once: a crash between the
+ * SMTP accept and the "sent" line resends that one message, and the key is
+ * sent as an X-Idempotency-Key header so receivers can drop the duplicate.
+ *
+ * The outbox holds an exclusive file lock while open, so only one process
+ * drains it at a time.
+ */
+public class ReminderOutbox implements Closeable {
+    public static final String OP_QUEUED = "queued";
+    public static final String OP_SENT = "sent";
+    public static final String OP_FAILED = "failed";
+    public static final String IDEMPOTENCY_HEADER = "X-Idempotency-Key";
+    
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final FileLock lock;
+    
+    // Every message of the current run and any unfinished earlier ones, by idempotency key; guarded by this
+    private final Map<String, Record> messagesByKey = new LinkedHashMap<>();
+    private String currentRunId;
+    
+    public ReminderOutbox(Path logPath, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(logPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null; // Already open elsewhere in this JVM
+        }
+        if (acquired == null) {
+            channel.close();
+            throw new IllegalStateException("Reminder outbox is already open");
+        }
+        this.lock = acquired;
+        try {
+            replay();
+        } catch (IOException | RuntimeException e) {
+            // Otherwise the lock outlives the failed open and every later open in this JVM fails
+            lock.release();
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Queue one message per recipient for the given run.
+     * Recipients already queued, sent or failed under this run id are skipped.
+     *
+     * @return how many messages were newly queued
+     */
+    public synchronized int enqueue(String runId, List<String> recipients) throws IOException {
+        if (!runId.equals(currentRunId) && getPendingCount() == 0) {
+            // Previous run is fully settled; its keys are no longer needed
+            channel.truncate(0);
+            messagesByKey.clear();
+        }
+        currentRunId = runId;
+        
+        List<Record> queued = new ArrayList<>();
+        for (String recipient : recipients) {
+            String key = runId + "/" + recipient;
+            if (!messagesByKey.containsKey(key)) {
+                Record record = new Record(OP_QUEUED, key, recipient, null);
+                messagesByKey.put(key, record);
+                queued.add(record);
+            }
+        }
+        append(queued);
+        return queued.size();
+    }
+    
+    /**
+     * Send every queued message, including ones left over from a run that did not finish.
+     * Each outcome is made durable as soon as it is known.
+     */
+    public ReminderDelivery.Report drain(ReminderDelivery delivery, ReminderDelivery.MessageFactory messageFactory) {
+        // A recipient with leftovers from an older run still gets one message
+        Map<String, List<String>> keysByRecipient = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Record record : messagesByKey.values()) {
+                if (OP_QUEUED.equals(record.op)) {
+                    keysByRecipient.computeIfAbsent(record.to, to -> new ArrayList<>()).add(record.key);
+                }
+            }
+        }
+        
+        ReminderDelivery.MessageFactory keyedFactory = (session, recipient) -> {
+            MimeMessage message = messageFactory.create(session, recipient);
+            List<String> keys = keysByRecipient.get(recipient);
+            message.setHeader(IDEMPOTENCY_HEADER, keys.get(keys.size() - 1));
+            return message;
+        };
+        return delivery.deliver(new ArrayList<>(keysByRecipient.keySet()), keyedFactory,
+                new ReminderDelivery.Listener() {
+                    @Override
+                    public void onSent(String recipient) {
+                        settle(keysByRecipient.get(recipient), OP_SENT, null);
+                    }
+                    
+                    @Override
+                    public void onFailed(String recipient, String error) {
+                        settle(keysByRecipient.get(recipient), OP_FAILED, error);
+                    }
+                });
+    }
+    
+    public synchronized int getPendingCount() {
+        int pending = 0;
+        for (Record record : messagesByKey.values()) {
+            if (OP_QUEUED.equals(record.op)) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        lock.release();
+        channel.close();
+    }
+    
+    private synchronized void settle(List<String> keys, String op, String error) {
+        List<Record> records = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Record record = new Record(op, key, null, error);
+            records.add(record);
+        }
+        try {
+            append(records);
+        } catch (IOException e) {
+            // Left queued on disk, so the next run sends it again
+            throw new RuntimeException("Failed to record reminder outcome", e);
+        }
+        for (Record record : records) {
+            Record queued = messagesByKey.get(record.key);
+            if (queued != null) {
+                queued.op = op;
+            }
+        }
+    }
+    
+    private void append(List<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Record record : records) {
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        channel.position(channel.size());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+    
+    // Same recovery as tasks.log: lines are split on raw bytes, and a torn trailing
+    // line (even one cut inside a multi-byte character) ends the replay and is cut off
+    private void replay() throws IOException {
+        long validLength = 0;
+        channel.position(0);
+        // Not closed: that would close the channel
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        while (TaskJournal.readLine(in, line)) {
+            if (line.size() == 0) {
+                validLength += 1;
+                continue;
+            }
+            Record record;
+            try {
+                record = objectMapper.readValue(line.toByteArray(), Record.class);
+            } catch (IOException e) {
+                System.err.println("Truncating corrupt outbox entry: " + e.getMessage());
+                break;
+            }
+            validLength += line.size() + 1;
+            if (record.key == null) {
+                continue;
+            }
+            if (OP_QUEUED.equals(record.op) && record.to != null) {
+                messagesByKey.putIfAbsent(record.key, record);
+                currentRunId = record.key.substring(0, record.key.length() - record.to.length() - 1);
+            } else if (messagesByKey.containsKey(record.key)) {
+                messagesByKey.get(record.key).op = record.op;
+            }
+        }
+        if (validLength < channel.size()) {
+            channel.truncate(validLength);
+        } else if (validLength > channel.size()) {
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'}), channel.size());
+        }
+    }
+    
+    /**
+     * One outbox line
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Record {
+        @JsonProperty("op")
+        public String op;
+        
+        @JsonProperty("key")
+        public String key;
+        
+        @JsonProperty("to")
+        public String to;
+        
+        @JsonProperty("error")
+        public String error;
+        
+        public Record() {}
+        
+        public Record(String op, String key, String to, String error) {
+            this.op = op;
+            this.key = key;
+            this.to = to;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.Task;
+
+import javax.activation.DataHandler;
+import javax.mail.Message;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.mail.util.ByteArrayDataSource;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Renders the pending-task reminder email
+ *
+ * Every subscriber gets the same task list, so the body is rendered once into
+ * UTF-8 bytes split around the unsubscribe token, and each recipient's body is
+ * just head + token + tail. The rendered body is cached and reused until
+ * TaskManager's version changes, so a reminder run costs one render plus one
+ * small copy per subscriber.
+ */
+public class ReminderTemplate {
+    public static final String SUBJECT = "Task Planner - Pending Tasks Reminder";
+    
+    private final TaskManager taskManager;
+    private final String unsubscribeUrl;
+    private volatile Rendered cached;
+    
+    /**
+     * @param unsubscribeUrl link prefix the token is appended to, e.g. "http://localhost:8080/unsubscribe?email="
+     */
+    public ReminderTemplate(TaskManager taskManager, String unsubscribeUrl) {
+        this.taskManager = taskManager;
+        this.unsubscribeUrl = unsubscribeUrl;
+    }
+    
+    /**
+     * Return the body for the current task state, rendering it only if tasks changed since the last call
+     */
+    public Rendered render() {
+        Rendered current = cached;
+        long version = taskManager.getVersion();
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = cached;
+            if (current != null && current.version == version) {
+                return current;
+            }
+            // Version is read before the tasks, so a change during rendering forces a re-render next time
+            current = render(version, taskManager.getPendingTasks());
+            cached = current;
+            return current;
+        }
+    }
+    
+    /**
+     * Message factory for one reminder run; the body is rendered once, here, and shared by every message
+     */
+    public ReminderDelivery.MessageFactory messageFactory(String fromAddress) {
+        Rendered rendered = render();
+        return (session, recipient) -> {
+            MimeMessage message = new MimeMessage(session);
+            message.setFrom(new InternetAddress(fromAddress));
+            message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+            message.setSubject(SUBJECT, "UTF-8");
+            message.setDataHandler(new DataHandler(
+                    new ByteArrayDataSource(rendered.bodyFor(recipient), "text/html; charset=UTF-8")));
+            return message;
+        };
+    }
+    
+    private Rendered render(long version, List<Task> pendingTasks) {
+        StringBuilder head = new StringBuilder(256 + pendingTasks.size() * 48);
+        head.append("<html><body>")
+            .append("<h2>Pending Tasks Reminder</h2>")
+            .append("<p>Here are the current pending tasks:</p>")
+            .append("<ul>");
+        for (Task task : pendingTasks) {
+            head.append("<li>");
+            appendEscaped(head, task.getName());
+            head.append("</li>");
+        }
+        head.append("</ul>")
+            .append("<p><a href=\"");
+        appendEscaped(head, unsubscribeUrl);
+        
+        String tail = "\">Unsubscribe from these reminders</a></p></body></html>";
+        return new Rendered(version, pendingTasks.size(),
+                head.toString().getBytes(StandardCharsets.UTF_8), tail.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void appendEscaped(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '&': out.append("&amp;"); break;
+                case '"': out.append("&quot;"); break;
+                case '\'': out.append("&#39;"); break;
+                default: out.append(c);
+            }
+        }
+    }
+    
+    /**
+     * The reminder body for one task state, split around the unsubscribe token
+     */
+    public static final class Rendered {
+        private final long version;
+        private final int taskCount;
+        private final byte[] head;
+        private final byte[] tail;
+        
+        private Rendered(long version, int taskCount, byte[] head, byte[] tail) {
+            this.version = version;
+            this.taskCount = taskCount;
+            this.head = head;
+            this.tail = tail;
+        }
+        
+        public long getVersion() {
+            return version;
+        }
+        
+        public int getTaskCount() {
+            return taskCount;
+        }
+        
+        /**
+         * Full UTF-8 body for one recipient, with their unsubscribe token spliced in
+         */
+        public byte[] bodyFor(String email) {
+            // Same encoding the /unsubscribe handler decodes; Base64 and URL-encoded output are plain ASCII
+            String encoded = Base64.getEncoder().encodeToString(email.getBytes(StandardCharsets.UTF_8));
+            byte[] token = URLEncoder.encode(encoded, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
+            byte[] body = new byte[head.length + token.length + tail.length];
+            System.arraycopy(head, 0, body, 0, head.length);
+            System.arraycopy(token, 0, body, head.length, token.length);
+            System.arraycopy(tail, 0, body, head.length + token.length, tail.length);
+            return body;
+        }
+    }
+}
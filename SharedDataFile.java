@@ -0,0 +1,218 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A JSON data file shared between processes (the web server and the CronTask JVM).
+ *
+ * Writes take an exclusive FileChannel lock on a sidecar "<file>.lock" and replace the
+ * file with an atomic temp-file rename, so a reader in any process sees either the old
+ * or the new content, never a partial write. The lock lives on the sidecar because the
+ * rename swaps out the data file itself.
+ *
+ * Reads keep the last parsed value and reuse it while the file's modification time,
+ * size and file key (inode) are unchanged; a rename always produces a new file key, so
+ * rewrites within the filesystem's timestamp resolution are still detected. Callers get
+ * a copy of the cached value and may modify it freely.
+ *
+ * Bytes parsed and written are counted per file name in the default MetricsRegistry;
+ * a read served from the cache counts nothing. Parsing, lock waits, writes, syncs and
+ * renames are traced as "file.<stage>:<file name>" spans.
+ */
+class SharedDataFile<T> {
+    /**
+     * How the value is encoded on disk
+     */
+    interface Format<T> {
+        T read(Path path) throws IOException;
+        
+        void write(T value, FileChannel out) throws IOException;
+    }
+    
+    private final Path path;
+    private final Path lockPath;
+    private final Path tempPath;
+    private final Format<T> format;
+    private final UnaryOperator<T> copier;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+    // Span names, built once
+    private final String parseStage;
+    private final String lockStage;
+    private final String writeStage;
+    private final String forceStage;
+    private final String renameStage;
+    
+    // Guarded by this; FileChannel locks are per-JVM, so writers in this process also serialize here
+    private Stamp cachedStamp;
+    private T cachedValue;
+    
+    SharedDataFile(Path path, ObjectMapper objectMapper, TypeReference<T> type,
+                   Supplier<T> empty, UnaryOperator<T> copier) {
+        this(path, new JsonFormat<>(objectMapper, type, empty), copier);
+    }
+    
+    SharedDataFile(Path path, Format<T> format, UnaryOperator<T> copier) {
+        this.path = path;
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.format = format;
+        this.copier = copier;
+        String file = path.getFileName().toString();
+        this.bytesRead = MetricsRegistry.getDefault().counter("taskscheduler_storage_read_bytes_total",
+                "Bytes of data files read and parsed", "file", file);
+        this.bytesWritten = MetricsRegistry.getDefault().counter("taskscheduler_storage_written_bytes_total",
+                "Bytes of data files written", "file", file);
+        this.parseStage = "file.parse:" + file;
+        this.lockStage = "file.lock_wait:" + file;
+        this.writeStage = "file.write:" + file;
+        this.forceStage = "file.force:" + file;
+        this.renameStage = "file.rename:" + file;
+    }
+    
+    /**
+     * Return the file's current content, parsing it only if it changed since the last read or write
+     */
+    synchronized T read() throws IOException {
+        // Stamp before reading: if the file is swapped in between, the next read sees a newer stamp and reparses
+        Stamp stamp = Stamp.of(path);
+        if (cachedValue == null || !stamp.equals(cachedStamp)) {
+            cachedValue = Trace.call(parseStage, () -> format.read(path));
+            cachedStamp = stamp;
+            bytesRead.add(Math.max(0, stamp.size));
+        }
+        return copier.apply(cachedValue);
+    }
+    
+    /**
+     * Atomically replace the file's content while holding the cross-process write lock
+     */
+    synchronized void write(T value) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(lockPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock(lockChannel); // Released when the channel closes
+            replace(value);
+        }
+    }
+    
+    /**
+     * Read, change and write back the content under one hold of the cross-process write
+     * lock, so a write from another process cannot land in between and be lost.
+     * The change edits a copy and returns false to skip the write.
+     */
+    synchronized boolean update(Predicate<T> change) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(lockPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            lock(lockChannel); // Released when the channel closes
+            T value = read();
+            if (!change.test(value)) {
+                return false;
+            }
+            replace(value);
+            return true;
+        }
+    }
+    
+    private FileLock lock(FileChannel lockChannel) throws IOException {
+        return Trace.call(lockStage, lockChannel::lock);
+    }
+    
+    // Caller holds the write lock
+    private void replace(T value) throws IOException {
+        try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Trace.run(writeStage, () -> format.write(value, out));
+            Trace.run(forceStage, () -> out.force(false));
+            bytesWritten.add(out.size());
+        }
+        Trace.run(renameStage, () -> Files.move(tempPath, path,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+        cachedStamp = Stamp.of(path);
+        cachedValue = copier.apply(value);
+    }
+    
+    boolean exists() {
+        return Files.exists(path);
+    }
+    
+    private static final class JsonFormat<T> implements Format<T> {
+        private final ObjectMapper objectMapper;
+        private final TypeReference<T> type;
+        private final Supplier<T> empty;
+        
+        JsonFormat(ObjectMapper objectMapper, TypeReference<T> type, Supplier<T> empty) {
+            this.objectMapper = objectMapper;
+            this.type = type;
+            this.empty = empty;
+        }
+        
+        @Override
+        public T read(Path path) throws IOException {
+            String content = Files.readString(path);
+            return content.trim().isEmpty() ? empty.get() : objectMapper.readValue(content, type);
+        }
+        
+        @Override
+        public void write(T value, FileChannel out) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(Trace.call("json.encode", () -> objectMapper.writeValueAsBytes(value)));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+    
+    /**
+     * Identity of one version of the file
+     */
+    private static final class Stamp {
+        private final long modifiedMillis;
+        private final long size;
+        private final Object fileKey;
+        
+        private Stamp(long modifiedMillis, long size, Object fileKey) {
+            this.modifiedMillis = modifiedMillis;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+        
+        static Stamp of(Path path) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+            } catch (NoSuchFileException e) {
+                return new Stamp(-1, -1, null);
+            }
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return modifiedMillis == other.modifiedMillis && size == other.size
+                    && Objects.equals(fileKey, other.fileKey);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(modifiedMillis, size, fileKey);
+        }
+    }
+}
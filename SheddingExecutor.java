@@ -0,0 +1,91 @@
+package com.taskscheduler.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for HttpServer exchanges that caps how many requests may be
+ * running or waiting at once
+ *
+ * Exchanges over the cap are not dropped: they run on a small side pool
+ * with {@link #isShedding()} set, so the request filter can answer 503
+ * without touching the task manager. If even the side pool is full, the
+ * dispatcher thread sends the 503 itself, which throttles accepts.
+ */
+class SheddingExecutor implements Executor {
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
+    private final ExecutorService delegate;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ThreadPoolExecutor shedPool;
+    
+    /**
+     * @param maxPending requests allowed to be running or queued on the delegate
+     */
+    SheddingExecutor(ExecutorService delegate, int maxPending) {
+        this.delegate = delegate;
+        this.maxPending = maxPending;
+        this.shedPool = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-shed");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    /**
+     * True while the current thread is handling an exchange that should be refused
+     */
+    static boolean isShedding() {
+        return SHEDDING.get();
+    }
+    
+    int getPendingCount() {
+        return pending.get();
+    }
+    
+    @Override
+    public void execute(Runnable exchange) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            shed(exchange);
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    exchange.run();
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            shed(exchange);
+        }
+    }
+    
+    private void shed(Runnable exchange) {
+        shedPool.execute(() -> {
+            SHEDDING.set(Boolean.TRUE);
+            try {
+                exchange.run();
+            } finally {
+                SHEDDING.set(Boolean.FALSE);
+            }
+        });
+    }
+    
+    void shutdown() {
+        delegate.shutdown();
+        shedPool.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Writes traces slower than a threshold as one JSON object per line
+ *
+ * {"time":"2026-01-05T10:15:30.123Z","id":"k3x9-1f","name":"PUT /api/tasks","status":200,"ms":812.4,
+ *  "spans":[{"stage":"parse_json","depth":0,"at_ms":0.1,"ms":0.2}, ...]}
+ *
+ * Spans that ran on another thread carry a "thread" field; spans still open when the
+ * trace ended have "ms": null. Faster traces cost one comparison.
+ */
+public class SlowRequestLog implements Consumer<Trace> {
+    private static final JsonFactory JSON = new JsonFactory();
+    
+    private final long thresholdNanos;
+    private final PrintStream out;
+    
+    /**
+     * Append to a file, creating it and its directory if needed
+     */
+    public SlowRequestLog(Duration threshold, Path file) {
+        this(threshold, open(file));
+    }
+    
+    public SlowRequestLog(Duration threshold, PrintStream out) {
+        this.thresholdNanos = threshold.toNanos();
+        this.out = out;
+    }
+    
+    private static PrintStream open(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new PrintStream(stream, true, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open slow request log " + file, e);
+        }
+    }
+    
+    @Override
+    public void accept(Trace trace) {
+        if (trace.getDurationNanos() < thresholdNanos) {
+            return;
+        }
+        String line;
+        try {
+            line = toJson(trace);
+        } catch (IOException e) {
+            System.err.println("Error writing slow request log: " + e.getMessage());
+            return;
+        }
+        // println on a PrintStream is synchronized, so concurrent lines never interleave
+        out.println(line);
+    }
+    
+    static String toJson(Trace trace) throws IOException {
+        StringWriter text = new StringWriter(512);
+        try (JsonGenerator json = JSON.createGenerator(text)) {
+            json.writeStartObject();
+            json.writeStringField("time", Instant.ofEpochMilli(trace.getStartMillis()).toString());
+            json.writeStringField("id", trace.getId());
+            json.writeStringField("name", trace.getName());
+            json.writeNumberField("status", trace.getStatus());
+            json.writeNumberField("ms", millis(trace.getDurationNanos()));
+            json.writeArrayFieldStart("spans");
+            String traceThread = null;
+            for (Trace.Span span : trace.getSpans()) {
+                if (traceThread == null) {
+                    traceThread = span.getThread();
+                }
+                json.writeStartObject();
+                json.writeStringField("stage", span.getStage());
+                json.writeNumberField("depth", span.getDepth());
+                json.writeNumberField("at_ms", millis(span.getOffsetNanos()));
+                if (span.getDurationNanos() >= 0) {
+                    json.writeNumberField("ms", millis(span.getDurationNanos()));
+                } else {
+                    json.writeNullField("ms");
+                }
+                if (!span.getThread().equals(traceThread)) {
+                    json.writeStringField("thread", span.getThread());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        return text.toString();
+    }
+    
+    // Milliseconds to 0.01 ms
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -0,0 +1,421 @@
+package com.taskscheduler.web;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory cache of the static web files, with their compressed variants and HTTP validators
+ *
+ * A file is read once, on first request, and kept with a gzip copy (for text types,
+ * when it is smaller) and a brotli copy if a precompressed "<file>.br" sits next to
+ * it; the JDK has no brotli encoder, so those are produced at build time or not at
+ * all. Each variant has its own strong ETag (a content hash), so a cached response
+ * is never mistaken for another encoding. A hit costs a map lookup, a few header
+ * sets and one buffer write; If-None-Match / If-Modified-Since hits are a 304.
+ *
+ * Files are assumed not to change while the server runs, except in watch mode,
+ * where a WatchService evicts a file as soon as it (or its .br) changes on disk.
+ * Missing files are not cached, so probing random paths cannot grow the cache.
+ */
+class StaticAssets {
+    // Files larger than this are streamed from disk on every request instead
+    private static final long MAX_CACHED_BYTES = 4 * 1024 * 1024;
+    // Smaller files are not worth compressing
+    private static final int MIN_COMPRESS_BYTES = 256;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+    
+    private final Path root;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    // Bumped before every eviction, so a load racing with a change never caches stale content
+    private final AtomicLong generation = new AtomicLong();
+    private WatchService watcher;
+    
+    StaticAssets(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+    
+    /**
+     * Evict files as they change on disk (development); otherwise edits need a restart
+     */
+    synchronized void watch() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        watcher = FileSystems.getDefault().newWatchService();
+        registerTree(root);
+        Thread thread = new Thread(this::watchLoop, "static-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    synchronized void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Error closing static file watcher: " + e.getMessage());
+            }
+            watcher = null;
+        }
+    }
+    
+    /**
+     * Answer a GET or HEAD for a static file; false if there is no such file
+     */
+    boolean serve(HttpExchange exchange, String requestPath) throws IOException {
+        Asset asset = assets.get(requestPath);
+        if (asset == null) {
+            Path file = resolve(requestPath);
+            if (file == null) {
+                return false;
+            }
+            // Cached under the normalized path only, so /./index.html cannot add entries
+            String key = keyOf(file);
+            asset = assets.get(key);
+            if (asset == null) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    return false;
+                }
+                if (!attributes.isRegularFile()) {
+                    return false;
+                }
+                if (attributes.size() > MAX_CACHED_BYTES) {
+                    sendUncached(exchange, key, file, attributes);
+                    return true;
+                }
+                asset = load(key, file);
+            }
+        }
+        
+        Variant variant = asset.select(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", variant.etag);
+        headers.set("Last-Modified", asset.lastModified);
+        headers.set("Cache-Control", asset.cacheControl);
+        if (asset.hasVariants()) {
+            headers.set("Vary", "Accept-Encoding");
+        }
+        if (notModified(exchange, variant.etag, asset.modifiedSeconds)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return true;
+        }
+        
+        headers.set("Content-Type", asset.contentType);
+        if (variant.encoding != null) {
+            headers.set("Content-Encoding", variant.encoding);
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            headers.set("Content-Length", String.valueOf(variant.body.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return true;
+        }
+        exchange.sendResponseHeaders(200, variant.body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(variant.body);
+        }
+        return true;
+    }
+    
+    // Null for paths that escape the static directory (/../data/tasks.txt)
+    private Path resolve(String requestPath) {
+        Path file = root.resolve(requestPath.substring(1)).normalize();
+        return file.startsWith(root) && !file.equals(root) ? file : null;
+    }
+    
+    private String keyOf(Path file) {
+        return "/" + root.relativize(file).toString().replace('\\', '/');
+    }
+    
+    private Asset load(String key, Path file) throws IOException {
+        long before = generation.get();
+        byte[] body = Files.readAllBytes(file);
+        long modifiedMillis = Files.getLastModifiedTime(file).toMillis();
+        String contentType = contentType(key);
+        
+        byte[] gzip = null;
+        if (isCompressible(contentType) && body.length >= MIN_COMPRESS_BYTES) {
+            gzip = gzip(body);
+            if (gzip.length >= body.length) {
+                gzip = null;
+            }
+        }
+        Path brotliFile = file.resolveSibling(file.getFileName() + ".br");
+        byte[] brotli = Files.isRegularFile(brotliFile) ? Files.readAllBytes(brotliFile) : null;
+        
+        Asset asset = new Asset(body, gzip, brotli, contentType, cacheControl(key), modifiedMillis);
+        assets.put(key, asset);
+        // Changed on disk while being read: keep it out of the cache (this request still gets it)
+        if (generation.get() != before) {
+            assets.remove(key, asset);
+        }
+        return asset;
+    }
+    
+    private void sendUncached(HttpExchange exchange, String key, Path file, BasicFileAttributes attributes)
+            throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType(key));
+        headers.set("Last-Modified", httpDate(attributes.lastModifiedTime().toMillis()));
+        headers.set("Cache-Control", cacheControl(key));
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            headers.set("Content-Length", String.valueOf(attributes.size()));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, attributes.size());
+        try (OutputStream os = exchange.getResponseBody()) {
+            Files.copy(file, os);
+        }
+    }
+    
+    // If-None-Match wins; If-Modified-Since is only consulted without it (RFC 9110 13.2.2)
+    private static boolean notModified(HttpExchange exchange, String etag, long modifiedSeconds) {
+        Headers request = exchange.getRequestHeaders();
+        String ifNoneMatch = request.getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (value.equals(etag) || value.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                return ZonedDateTime.parse(ifModifiedSince, HTTP_DATE).toEpochSecond() >= modifiedSeconds;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    private void registerTree(Path directory) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path dir : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+    
+    private void watchLoop() {
+        WatchService service;
+        synchronized (this) {
+            service = watcher;
+        }
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        evictAll();
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                        registerTree(changed);
+                    }
+                    evict(changed);
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // close() was called
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Static file watcher stopped: " + e.getMessage());
+            evictAll();
+        }
+    }
+    
+    private void evict(Path changed) {
+        String path = keyOf(changed);
+        // A changed .br belongs to the file it compresses
+        if (path.endsWith(".br")) {
+            path = path.substring(0, path.length() - 3);
+        }
+        generation.incrementAndGet();
+        assets.remove(path);
+        // Everything under a directory that was replaced or removed
+        String prefix = path + "/";
+        assets.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+    
+    private void evictAll() {
+        generation.incrementAndGet();
+        assets.clear();
+    }
+    
+    private static String contentType(String path) {
+        if (path.endsWith(".html")) return "text/html";
+        if (path.endsWith(".css")) return "text/css";
+        if (path.endsWith(".js")) return "application/javascript";
+        if (path.endsWith(".json")) return "application/json";
+        if (path.endsWith(".svg")) return "image/svg+xml";
+        if (path.endsWith(".png")) return "image/png";
+        if (path.endsWith(".ico")) return "image/x-icon";
+        return "text/plain";
+    }
+    
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.equals("application/javascript")
+                || contentType.equals("application/json") || contentType.equals("image/svg+xml");
+    }
+    
+    // Pages are revalidated on every load (a 304 when unchanged) so a deploy shows at once;
+    // other files may be reused for an hour
+    private static String cacheControl(String path) {
+        return path.endsWith(".html") ? "no-cache" : "public, max-age=3600";
+    }
+    
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+    
+    private static String httpDate(long epochMillis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC));
+    }
+    
+    /**
+     * One cached file: its encodings and the header values sent with all of them
+     */
+    private static final class Asset {
+        private final Variant identity;
+        private final Variant gzip;
+        private final Variant brotli;
+        private final String contentType;
+        private final String cacheControl;
+        private final String lastModified;
+        private final long modifiedSeconds;
+        
+        Asset(byte[] body, byte[] gzip, byte[] brotli, String contentType, String cacheControl, long modifiedMillis) {
+            String hash = contentHash(body);
+            this.identity = new Variant(body, null, "\"" + hash + "\"");
+            this.gzip = gzip != null ? new Variant(gzip, "gzip", "\"" + hash + "-gz\"") : null;
+            this.brotli = brotli != null ? new Variant(brotli, "br", "\"" + hash + "-br\"") : null;
+            this.contentType = contentType;
+            this.cacheControl = cacheControl;
+            this.lastModified = httpDate(modifiedMillis);
+            // HTTP dates have whole seconds
+            this.modifiedSeconds = Instant.ofEpochMilli(modifiedMillis).truncatedTo(ChronoUnit.SECONDS).getEpochSecond();
+        }
+        
+        boolean hasVariants() {
+            return gzip != null || brotli != null;
+        }
+        
+        // Brotli, then gzip, then the file as is, among those the client accepts (q > 0).
+        // A coding named explicitly overrides "*".
+        Variant select(String acceptEncoding) {
+            if (acceptEncoding == null || !hasVariants()) {
+                return identity;
+            }
+            Boolean acceptsBrotli = null;
+            Boolean acceptsGzip = null;
+            Boolean acceptsAny = null;
+            for (String part : acceptEncoding.split(",")) {
+                String[] fields = part.split(";");
+                String coding = fields[0].trim().toLowerCase(Locale.ROOT);
+                boolean accepted = true;
+                for (int i = 1; i < fields.length; i++) {
+                    String parameter = fields[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                if (coding.equals("br")) {
+                    acceptsBrotli = accepted;
+                } else if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                    acceptsGzip = accepted;
+                } else if (coding.equals("*")) {
+                    acceptsAny = accepted;
+                }
+            }
+            if (brotli != null && (acceptsBrotli != null ? acceptsBrotli : Boolean.TRUE.equals(acceptsAny))) {
+                return brotli;
+            }
+            if (gzip != null && (acceptsGzip != null ? acceptsGzip : Boolean.TRUE.equals(acceptsAny))) {
+                return gzip;
+            }
+            return identity;
+        }
+        
+        // First 128 bits of SHA-256, base64url: changes whenever the content does
+        private static String contentHash(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+    
+    private static final class Variant {
+        private final byte[] body;
+        private final String encoding;
+        private final String etag;
+        
+        Variant(byte[] body, String encoding, String etag) {
+            this.body = body;
+            this.encoding = encoding;
+            this.etag = etag;
+        }
+    }
+}
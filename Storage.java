@@ -0,0 +1,134 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.PendingSubscription;
+import com.taskscheduler.model.Task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Storage backend for tasks, subscribers and pending subscriptions
+ *
+ * A backend only has to load and save whole collections. Backends that can
+ * write single records (the task log, a database) report isIncremental()
+ * and override the per-change methods; the point-lookup defaults fall back
+ * to a full load and can be overridden with indexed reads.
+ */
+public interface Storage {
+    // Tasks
+    List<Task> loadTasks();
+    
+    void saveTasks(List<Task> tasks);
+    
+    /**
+     * True if task changes are persisted one at a time through taskAdded, taskCompleted,
+     * taskScheduled, taskDeleted and taskBatch rather than by rewriting every task
+     */
+    default boolean isIncremental() {
+        return false;
+    }
+    
+    /**
+     * Persist a new task and return a sequence number for {@link #awaitDurable(long)}
+     */
+    default long taskAdded(Task task) {
+        throw new UnsupportedOperationException("Storage is not incremental");
+    }
+    
+    default long taskCompleted(Task task) {
+        throw new UnsupportedOperationException("Storage is not incremental");
+    }
+    
+    default long taskScheduled(Task task) {
+        throw new UnsupportedOperationException("Storage is not incremental");
+    }
+    
+    default long taskDeleted(String taskId) {
+        throw new UnsupportedOperationException("Storage is not incremental");
+    }
+    
+    /**
+     * Persist several task changes as one unit, in order
+     */
+    default long taskBatch(List<TaskChange> changes) {
+        throw new UnsupportedOperationException("Storage is not incremental");
+    }
+    
+    /**
+     * Block until the change with the given sequence number is durable
+     */
+    default void awaitDurable(long sequence) {
+    }
+    
+    default Task loadTask(String taskId) {
+        for (Task task : loadTasks()) {
+            if (task.getId().equals(taskId)) {
+                return task;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Start background maintenance; currentTasks supplies the live task list
+     */
+    default void open(Supplier<List<Task>> currentTasks) {
+    }
+    
+    /**
+     * Flush outstanding work and release resources
+     */
+    default void close(Supplier<List<Task>> currentTasks) {
+    }
+    
+    // Subscribers
+    List<String> loadSubscribers();
+    
+    void saveSubscribers(List<String> subscribers);
+    
+    default boolean isSubscribed(String email) {
+        return loadSubscribers().contains(email);
+    }
+    
+    default boolean addSubscriber(String email) {
+        List<String> subscribers = loadSubscribers();
+        if (subscribers.contains(email)) {
+            return false;
+        }
+        subscribers.add(email);
+        saveSubscribers(subscribers);
+        return true;
+    }
+    
+    default boolean removeSubscriber(String email) {
+        List<String> subscribers = loadSubscribers();
+        if (!subscribers.remove(email)) {
+            return false;
+        }
+        saveSubscribers(subscribers);
+        return true;
+    }
+    
+    // Pending subscriptions
+    Map<String, PendingSubscription> loadPendingSubscriptions();
+    
+    void savePendingSubscriptions(Map<String, PendingSubscription> pendingSubscriptions);
+    
+    default PendingSubscription loadPendingSubscription(String email) {
+        return loadPendingSubscriptions().get(email);
+    }
+    
+    default void savePendingSubscription(String email, PendingSubscription pendingSubscription) {
+        Map<String, PendingSubscription> pendingSubscriptions = loadPendingSubscriptions();
+        pendingSubscriptions.put(email, pendingSubscription);
+        savePendingSubscriptions(pendingSubscriptions);
+    }
+    
+    default void removePendingSubscription(String email) {
+        Map<String, PendingSubscription> pendingSubscriptions = loadPendingSubscriptions();
+        if (pendingSubscriptions.remove(email) != null) {
+            savePendingSubscriptions(pendingSubscriptions);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.PendingSubscription;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of verified subscribers and pending verification codes
+ *
+ * Both are loaded from storage once and kept in hash maps keyed by the
+ * normalized (trimmed, lower-cased) email, so subscribe, verify, unsubscribe
+ * and membership checks never scan or re-read the stored lists. Each change
+ * is written through with one of the storage's single-entry methods.
+ *
+ * Verification codes expire after a TTL. Expired codes are rejected on
+ * lookup and swept from memory and storage by a background thread.
+ */
+public class SubscriberRegistry implements AutoCloseable {
+    public static final Duration DEFAULT_CODE_TTL = Duration.ofHours(24);
+    private static final long DEFAULT_SWEEP_INTERVAL_SECONDS = 60;
+    private static final int CODE_DIGITS = 6;
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    
+    private final Storage storage;
+    private final long codeTtlSeconds;
+    private final SecureRandom random = new SecureRandom();
+    
+    // Normalized email -> email as stored, so entries written before normalization can still be removed
+    private final Map<String, String> subscribers = new ConcurrentHashMap<>();
+    // Normalized email -> outstanding code
+    private final Map<String, PendingSubscription> pending = new ConcurrentHashMap<>();
+    
+    private final ScheduledExecutorService sweeper;
+    
+    public SubscriberRegistry(Storage storage) {
+        this(storage, DEFAULT_CODE_TTL, DEFAULT_SWEEP_INTERVAL_SECONDS);
+    }
+    
+    /**
+     * @param codeTtl              how long a verification code stays valid
+     * @param sweepIntervalSeconds how often expired codes are removed
+     */
+    public SubscriberRegistry(Storage storage, Duration codeTtl, long sweepIntervalSeconds) {
+        this.storage = storage;
+        this.codeTtlSeconds = codeTtl.getSeconds();
+        
+        for (String email : storage.loadSubscribers()) {
+            String key = normalize(email);
+            if (key != null) {
+                subscribers.putIfAbsent(key, email);
+            }
+        }
+        // Expired codes are loaded too, so the first sweep removes them from storage as well
+        for (Map.Entry<String, PendingSubscription> entry : storage.loadPendingSubscriptions().entrySet()) {
+            String key = normalize(entry.getKey());
+            if (key != null) {
+                pending.put(key, entry.getValue());
+            }
+        }
+        
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "subscriber-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, 0, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Issue a verification code for an email address, replacing any earlier code
+     *
+     * @return the code to send, or null if the address is invalid or already subscribed
+     */
+    public String subscribe(String email) {
+        String key = normalize(email);
+        if (key == null || subscribers.containsKey(key)) {
+            return null;
+        }
+        PendingSubscription entry = new PendingSubscription(newCode(), nowSeconds());
+        PendingSubscription previous = pending.put(key, entry);
+        try {
+            storage.savePendingSubscription(key, entry);
+        } catch (RuntimeException e) {
+            if (previous != null) {
+                pending.replace(key, entry, previous);
+            } else {
+                pending.remove(key, entry);
+            }
+            throw e;
+        }
+        return entry.getCode();
+    }
+    
+    /**
+     * Confirm a subscription with its code. A code can be used once and only before it expires.
+     */
+    public boolean verify(String email, String code) {
+        String key = normalize(email);
+        if (key == null || code == null) {
+            return false;
+        }
+        PendingSubscription entry = pending.get(key);
+        if (entry == null || isExpired(entry, nowSeconds()) || !codeMatches(entry, code)) {
+            return false;
+        }
+        // Only one of two concurrent verifications of the same code gets past this
+        if (!pending.remove(key, entry)) {
+            return false;
+        }
+        if (subscribers.putIfAbsent(key, key) == null) {
+            try {
+                storage.addSubscriber(key);
+            } catch (RuntimeException e) {
+                subscribers.remove(key, key);
+                pending.putIfAbsent(key, entry);
+                throw e;
+            }
+        }
+        // The subscription already stands; a code left in storage just expires and is swept after a restart
+        try {
+            storage.removePendingSubscription(key);
+        } catch (RuntimeException e) {
+            System.err.println("Error removing used subscription code: " + e.getMessage());
+        }
+        return true;
+    }
+    
+    /**
+     * @return false if the address was not subscribed
+     */
+    public boolean unsubscribe(String email) {
+        String key = normalize(email);
+        if (key == null) {
+            return false;
+        }
+        String stored = subscribers.remove(key);
+        if (stored == null) {
+            return false;
+        }
+        try {
+            storage.removeSubscriber(stored);
+        } catch (RuntimeException e) {
+            subscribers.putIfAbsent(key, stored);
+            throw e;
+        }
+        return true;
+    }
+    
+    public boolean isSubscribed(String email) {
+        String key = normalize(email);
+        return key != null && subscribers.containsKey(key);
+    }
+    
+    /**
+     * Verified subscribers, as stored
+     */
+    public List<String> getSubscribers() {
+        return new ArrayList<>(subscribers.values());
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Stop the background sweep
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+    
+    // Remove expired codes; one whose storage removal fails stays on disk until the next startup's sweep
+    void sweep() {
+        long now = nowSeconds();
+        for (Map.Entry<String, PendingSubscription> entry : pending.entrySet()) {
+            if (isExpired(entry.getValue(), now) && pending.remove(entry.getKey(), entry.getValue())) {
+                try {
+                    storage.removePendingSubscription(entry.getKey());
+                } catch (RuntimeException e) {
+                    System.err.println("Error removing expired subscription code: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private boolean isExpired(PendingSubscription entry, long now) {
+        return entry.getTimestamp() + codeTtlSeconds <= now;
+    }
+    
+    // Constant-time comparison, so response timing does not reveal how much of a guess was right
+    private static boolean codeMatches(PendingSubscription entry, String code) {
+        return entry.getCode() != null && MessageDigest.isEqual(
+                entry.getCode().getBytes(StandardCharsets.UTF_8), code.trim().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private String newCode() {
+        int bound = (int) Math.pow(10, CODE_DIGITS);
+        return String.format("%0" + CODE_DIGITS + "d", random.nextInt(bound));
+    }
+    
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+    
+    /**
+     * Trimmed, lower-cased form used as the key, or null if the address is not valid
+     */
+    static String normalize(String email) {
+        if (email == null) {
+            return null;
+        }
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return EMAIL.matcher(normalized).matches() ? normalized : null;
+    }
+}
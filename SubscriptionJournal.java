@@ -0,0 +1,242 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskscheduler.model.PendingSubscription;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of single subscriber and pending-subscription changes (subscriptions.log)
+ *
+ * Each subscribe, unsubscribe and issued or used verification code is one JSON
+ * line, forced to disk before the call returns, instead of a rewrite of the whole
+ * subscriber file. Readers apply the log on top of the snapshot files; compaction
+ * folds it into them and empties it.
+ *
+ * The log is shared with the CronTask process, so every read, append and
+ * compaction holds an exclusive lock on it.
+ */
+class SubscriptionJournal implements Closeable {
+    static final String OP_SUBSCRIBE = "subscribe";
+    static final String OP_UNSUBSCRIBE = "unsubscribe";
+    static final String OP_PENDING = "pending";
+    static final String OP_PENDING_DONE = "pendingDone";
+    
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private int recordCount; // guarded by this; as of the last read, append or compaction
+    
+    SubscriptionJournal(Path logPath, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(logPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Hand every record in the log, in order, to the view, which reads the snapshots
+     * under the same lock so a compaction cannot fall in between. A torn trailing
+     * record (crash mid-append) is cut off.
+     */
+    synchronized <T> T read(View<T> view) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            return view.apply(readRecords());
+        } finally {
+            lock.release();
+        }
+    }
+    
+    /**
+     * Append one record and force it to disk
+     */
+    synchronized void append(Record record) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            write(record);
+        } finally {
+            lock.release();
+        }
+    }
+    
+    /**
+     * Append one record if the condition, given the current log, holds; no other
+     * writer can append in between
+     *
+     * @return whether the record was appended
+     */
+    synchronized boolean appendIf(Record record, View<Boolean> condition) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            if (!condition.apply(readRecords())) {
+                return false;
+            }
+            write(record);
+            return true;
+        } finally {
+            lock.release();
+        }
+    }
+    
+    /**
+     * Fold the log into the snapshots: the writer persists them from the given records,
+     * then the log is emptied. Appends are held off until it is done.
+     */
+    synchronized void compact(Fold fold) throws IOException {
+        FileLock lock = channel.lock();
+        try {
+            fold.writeSnapshots(readRecords());
+            channel.truncate(0);
+            channel.force(true);
+            recordCount = 0;
+        } finally {
+            lock.release();
+        }
+    }
+    
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+    
+    // Caller holds the file lock
+    private void write(Record record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(record) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        recordCount++;
+    }
+    
+    // Caller holds the file lock
+    private List<Record> readRecords() throws IOException {
+        List<Record> records = new ArrayList<>();
+        long validLength = 0;
+        channel.position(0);
+        // Not closed: that would close the channel
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 16 * 1024);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        while (TaskJournal.readLine(in, line)) {
+            if (line.size() == 0) {
+                validLength += 1;
+                continue;
+            }
+            try {
+                records.add(objectMapper.readValue(line.toByteArray(), Record.class));
+            } catch (IOException e) {
+                System.err.println("Truncating corrupt subscription log entry: " + e.getMessage());
+                break;
+            }
+            validLength += line.size() + 1;
+        }
+        if (validLength < channel.size()) {
+            channel.truncate(validLength);
+        } else if (validLength > channel.size()) {
+            // Last record made it to disk without its newline
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'}), channel.size());
+        }
+        recordCount = records.size();
+        return records;
+    }
+    
+    // Replays are idempotent, so records already folded into a snapshot are harmless
+    static List<String> applySubscribers(List<String> subscribers, List<Record> records) {
+        for (Record record : records) {
+            if (record.email == null) {
+                continue;
+            }
+            if (OP_SUBSCRIBE.equals(record.op) && !subscribers.contains(record.email)) {
+                subscribers.add(record.email);
+            } else if (OP_UNSUBSCRIBE.equals(record.op)) {
+                subscribers.remove(record.email);
+            }
+        }
+        return subscribers;
+    }
+    
+    static Map<String, PendingSubscription> applyPending(Map<String, PendingSubscription> pending,
+                                                         List<Record> records) {
+        for (Record record : records) {
+            if (record.email == null) {
+                continue;
+            }
+            if (OP_PENDING.equals(record.op)) {
+                pending.put(record.email, new PendingSubscription(record.code,
+                        record.timestamp != null ? record.timestamp : 0));
+            } else if (OP_PENDING_DONE.equals(record.op)) {
+                pending.remove(record.email);
+            }
+        }
+        return pending;
+    }
+    
+    /**
+     * Reads the snapshots and applies the log records to them
+     */
+    @FunctionalInterface
+    interface View<T> {
+        T apply(List<Record> records) throws IOException;
+    }
+    
+    /**
+     * Callback that persists the snapshots during compaction
+     */
+    @FunctionalInterface
+    interface Fold {
+        void writeSnapshots(List<Record> records) throws IOException;
+    }
+    
+    /**
+     * One log line
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Record {
+        @JsonProperty("op")
+        public String op;
+        
+        @JsonProperty("email")
+        public String email;
+        
+        @JsonProperty("code")
+        public String code;
+        
+        @JsonProperty("timestamp")
+        public Long timestamp;
+        
+        public Record() {}
+        
+        public Record(String op, String email) {
+            this.op = op;
+            this.email = email;
+        }
+        
+        public static Record pending(String email, PendingSubscription pendingSubscription) {
+            Record record = new Record(OP_PENDING, email);
+            record.code = pendingSubscription.getCode();
+            record.timestamp = pendingSubscription.getTimestamp();
+            return record;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.taskscheduler.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -15,6 +16,21 @@ public class Task {
     @JsonProperty("completed")
     private boolean completed;
     
+    // Higher values are more urgent; 0 is the default and is omitted from JSON
+    @JsonProperty("priority")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int priority;
+    
+    // Due time in epoch milliseconds, or null if the task has no deadline
+    @JsonProperty("dueTime")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long dueTime;
+    
+    // ISO-8601 duration (e.g. "PT1H", "P1D") after which a completed task comes due again
+    @JsonProperty("recurrence")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String recurrence;
+    
     // Default constructor for JSON deserialization
     public Task() {}
     
@@ -24,6 +40,18 @@ public class Task {
         this.completed = completed;
     }
     
+    public Task(String id, String name, boolean completed, int priority, Long dueTime, String recurrence) {
+        this(id, name, completed);
+        this.priority = priority;
+        this.dueTime = dueTime;
+        this.recurrence = recurrence;
+    }
+    
+    // Copy constructor, used to hand out snapshots of stored tasks
+    public Task(Task other) {
+        this(other.id, other.name, other.completed, other.priority, other.dueTime, other.recurrence);
+    }
+    
     // Getters and setters
     public String getId() {
         return id;
@@ -49,6 +77,30 @@ public class Task {
         this.completed = completed;
     }
     
+    public int getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+    
+    public Long getDueTime() {
+        return dueTime;
+    }
+    
+    public void setDueTime(Long dueTime) {
+        this.dueTime = dueTime;
+    }
+    
+    public String getRecurrence() {
+        return recurrence;
+    }
+    
+    public void setRecurrence(String recurrence) {
+        this.recurrence = recurrence;
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -68,6 +120,9 @@ public class Task {
                 "id='" + id + '\'' +
                 ", name='" + name + '\'' +
                 ", completed=" + completed +
+                ", priority=" + priority +
+                ", dueTime=" + dueTime +
+                ", recurrence='" + recurrence + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.Task;
+
+/**
+ * One task change, as handed to {@link Storage#taskBatch(java.util.List)}
+ *
+ * Storage-neutral: FileStorage turns each change into a tasks.log record,
+ * JdbcStorage into a statement.
+ */
+public sealed interface TaskChange {
+    String taskId();
+    
+    static TaskChange added(Task task) {
+        return new Added(task);
+    }
+    
+    // Completing a recurring task moves its due time forward instead
+    static TaskChange completed(Task task) {
+        return new Completed(task.getId(), task.isCompleted(),
+                task.getRecurrence() != null ? task.getDueTime() : null);
+    }
+    
+    static TaskChange scheduled(Task task) {
+        return new Scheduled(task.getId(), task.getPriority(), task.getDueTime(), task.getRecurrence());
+    }
+    
+    static TaskChange deleted(String taskId) {
+        return new Deleted(taskId);
+    }
+    
+    record Added(Task task) implements TaskChange {
+        @Override
+        public String taskId() {
+            return task.getId();
+        }
+    }
+    
+    /**
+     * @param dueTime the new due time of a recurring task, or null to keep it
+     */
+    record Completed(String taskId, boolean completed, Long dueTime) implements TaskChange {}
+    
+    /**
+     * Carries the full schedule; a null dueTime or recurrence clears it
+     */
+    record Scheduled(String taskId, int priority, Long dueTime, String recurrence) implements TaskChange {}
+    
+    record Deleted(String taskId) implements TaskChange {}
+}
@@ -0,0 +1,45 @@
+package com.taskscheduler.model;
+
+/**
+ * Change notification published by TaskManager after a task mutation
+ */
+public class TaskEvent {
+    public enum Type {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+    
+    private final long version;
+    private final Type type;
+    private final Task task;
+    
+    public TaskEvent(long version, Type type, Task task) {
+        this.version = version;
+        this.type = type;
+        this.task = task;
+    }
+    
+    // TaskManager version after this change
+    public long getVersion() {
+        return version;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    // Snapshot of the task after the change; for DELETED, the task as it was removed
+    public Task getTask() {
+        return task;
+    }
+    
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "version=" + version +
+                ", type=" + type +
+                ", task=" + task +
+                '}';
+    }
+}
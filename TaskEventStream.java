@@ -0,0 +1,156 @@
+package com.taskscheduler.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.taskscheduler.model.TaskEvent;
+import com.taskscheduler.service.TaskManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events fan-out of task changes (/api/tasks/stream)
+ *
+ * TaskManager's listener only offers each event to every subscriber's
+ * bounded queue, so a mutation never waits on a client. Each subscriber
+ * has its own writer; one that falls a full queue behind is disconnected,
+ * and on reconnect (EventSource sends Last-Event-ID) it is replayed from
+ * TaskManager's recent changes or told to resync.
+ */
+class TaskEventStream implements Consumer<TaskEvent> {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_SUBSCRIBERS = 1000;
+    private static final long HEARTBEAT_SECONDS = 15;
+    
+    private final TaskManager taskManager;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService writers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    
+    TaskEventStream(TaskManager taskManager, ObjectMapper objectMapper, ExecutorService writers) {
+        this.taskManager = taskManager;
+        this.objectMapper = objectMapper;
+        this.writers = writers;
+    }
+    
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    @Override
+    public void accept(TaskEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(event)) {
+                // Too slow to keep up; it will catch up from Last-Event-ID after reconnecting
+                subscriber.overflowed = true;
+            }
+        }
+    }
+    
+    /**
+     * Take over the exchange and stream events to it from a writer thread.
+     * The response headers are sent on the calling thread, so the request's
+     * trace and metrics see the 200 before the handler returns.
+     *
+     * @param sinceVersion last version the client has seen, or null if unknown
+     * @return false if the stream is at capacity and the caller should answer 503
+     */
+    boolean subscribe(HttpExchange exchange, Long sinceVersion) throws IOException {
+        if (subscribers.size() >= MAX_SUBSCRIBERS) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        
+        Subscriber subscriber = new Subscriber(exchange);
+        subscribers.add(subscriber);
+        try {
+            writers.execute(() -> stream(subscriber, sinceVersion));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; EventSource reconnects on its own
+            subscribers.remove(subscriber);
+            exchange.close();
+        }
+        return true;
+    }
+    
+    void close() {
+        writers.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.exchange.close();
+        }
+        subscribers.clear();
+    }
+    
+    private void stream(Subscriber subscriber, Long sinceVersion) {
+        HttpExchange exchange = subscriber.exchange;
+        try {
+            OutputStream out = exchange.getResponseBody();
+            
+            // Registered before reading history, so nothing falls in between;
+            // anything seen twice is skipped by version
+            long lastSent = sinceVersion != null ? sinceVersion : taskManager.getVersion();
+            if (sinceVersion != null) {
+                List<TaskEvent> missed = taskManager.getChangesSince(sinceVersion);
+                if (missed == null) {
+                    write(out, "event: resync\ndata: {}\n\n");
+                    lastSent = taskManager.getVersion();
+                } else {
+                    for (TaskEvent event : missed) {
+                        writeEvent(out, event);
+                        lastSent = event.getVersion();
+                    }
+                }
+            }
+            write(out, "event: ready\ndata: {\"version\": " + lastSent + "}\n\n");
+            
+            while (!subscriber.overflowed) {
+                TaskEvent event = subscriber.queue.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    write(out, ": ping\n\n");
+                } else if (event.getVersion() > lastSent) {
+                    writeEvent(out, event);
+                    lastSent = event.getVersion();
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(subscriber);
+            exchange.close();
+        }
+    }
+    
+    private void writeEvent(OutputStream out, TaskEvent event) throws IOException {
+        write(out, "id: " + event.getVersion() + "\nevent: task\ndata: "
+                + objectMapper.writeValueAsString(event) + "\n\n");
+    }
+    
+    private static void write(OutputStream out, String frame) throws IOException {
+        out.write(frame.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+    
+    private static final class Subscriber {
+        private final HttpExchange exchange;
+        private final BlockingQueue<TaskEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean overflowed;
+        
+        private Subscriber(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+    }
+}
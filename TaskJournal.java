@@ -0,0 +1,314 @@
+package com.taskscheduler.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskscheduler.model.Task;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only write-ahead log of task mutations (tasks.log)
+ *
+ * Every add, complete and delete is appended as one JSON line. Writers that
+ * arrive while an fsync is in flight are covered by the next one, so
+ * concurrent mutations share a single force() instead of paying one each.
+ */
+public class TaskJournal implements Closeable {
+    public static final String OP_ADD = "add";
+    public static final String OP_COMPLETE = "complete";
+    public static final String OP_DELETE = "delete";
+    public static final String OP_SCHEDULE = "schedule";
+    
+    private final Path logPath;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private long appendedSequence;   // guarded by writeLock
+    private long durableSequence;    // guarded by syncLock
+    private long recordCount;        // guarded by writeLock
+    
+    public TaskJournal(Path logPath, ObjectMapper objectMapper) throws IOException {
+        this.logPath = logPath;
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(logPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Append one record and return its sequence number.
+     * The record is written but not yet durable; see {@link #awaitDurable(long)}.
+     */
+    public long append(Record record) throws IOException {
+        return appendAll(List.of(record));
+    }
+    
+    /**
+     * Append several records with a single write; they share one sequence number
+     */
+    public long appendAll(List<Record> records) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Record record : records) {
+            lines.append(objectMapper.writeValueAsString(record)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        synchronized (writeLock) {
+            channel.position(channel.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            recordCount += records.size();
+            return ++appendedSequence;
+        }
+    }
+    
+    /**
+     * Block until the record with the given sequence number is on disk.
+     * One force() covers every record appended before it started.
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            long target;
+            synchronized (writeLock) {
+                target = appendedSequence;
+            }
+            channel.force(false);
+            durableSequence = target;
+        }
+    }
+    
+    /**
+     * Apply every record in the log, in order, on top of a snapshot keyed by task id.
+     * A torn trailing record (crash mid-append) ends the replay and is cut off. Lines
+     * are split on raw bytes, so a tear inside a multi-byte character is just a bad record.
+     */
+    public void replay(Map<String, Task> tasks) throws IOException {
+        synchronized (writeLock) {
+            long validLength = 0;
+            long count = 0;
+            channel.position(0);
+            // Not closed: that would close the channel
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            while (readLine(in, line)) {
+                if (line.size() == 0) {
+                    validLength += 1;
+                    continue;
+                }
+                Record record;
+                try {
+                    record = objectMapper.readValue(line.toByteArray(), Record.class);
+                } catch (IOException e) {
+                    System.err.println("Truncating corrupt task log entry: " + e.getMessage());
+                    break;
+                }
+                apply(record, tasks);
+                validLength += line.size() + 1;
+                count++;
+            }
+            if (validLength < channel.size()) {
+                channel.truncate(validLength);
+            } else if (validLength > channel.size()) {
+                // Last record made it to disk without its newline
+                channel.write(ByteBuffer.wrap(new byte[] {'\n'}), channel.size());
+            }
+            recordCount = count;
+        }
+    }
+    
+    // Read up to the next newline into line, without it; false at end of input.
+    // Shared with ReminderOutbox, whose log has the same line format.
+    static boolean readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return true;
+            }
+            line.write(b);
+        }
+        return line.size() > 0;
+    }
+    
+    /**
+     * Fold the log into a snapshot: the writer persists the snapshot, then the log is emptied.
+     * Appends are held off while this runs so no record can fall between the two.
+     */
+    public void compact(SnapshotWriter snapshotWriter) throws IOException {
+        synchronized (writeLock) {
+            if (recordCount == 0) {
+                return;
+            }
+            snapshotWriter.writeSnapshot();
+            channel.truncate(0);
+            channel.force(true);
+            recordCount = 0;
+        }
+    }
+    
+    public long getRecordCount() {
+        synchronized (writeLock) {
+            return recordCount;
+        }
+    }
+    
+    public Path getLogPath() {
+        return logPath;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            channel.close();
+        }
+    }
+    
+    // Replays are idempotent so a record that is also part of the snapshot is harmless
+    private static void apply(Record record, Map<String, Task> tasks) {
+        if (record.op == null || record.id == null) {
+            return;
+        }
+        switch (record.op) {
+            case OP_ADD:
+                tasks.putIfAbsent(record.id, new Task(record.id, record.name, Boolean.TRUE.equals(record.completed),
+                        record.priority != null ? record.priority : 0, record.dueTime, record.recurrence));
+                break;
+            case OP_COMPLETE:
+                Task task = tasks.get(record.id);
+                if (task != null) {
+                    task.setCompleted(Boolean.TRUE.equals(record.completed));
+                    // Completing a recurring task moves its due time forward instead
+                    if (record.dueTime != null) {
+                        task.setDueTime(record.dueTime);
+                    }
+                }
+                break;
+            case OP_SCHEDULE:
+                Task scheduled = tasks.get(record.id);
+                if (scheduled != null) {
+                    scheduled.setPriority(record.priority != null ? record.priority : 0);
+                    scheduled.setDueTime(record.dueTime);
+                    scheduled.setRecurrence(record.recurrence);
+                }
+                break;
+            case OP_DELETE:
+                tasks.remove(record.id);
+                break;
+            default:
+                System.err.println("Skipping unknown task log operation: " + record.op);
+        }
+    }
+    
+    /**
+     * Callback that persists the full task snapshot during compaction
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void writeSnapshot() throws IOException;
+    }
+    
+    /**
+     * One log line
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Record {
+        @JsonProperty("op")
+        public String op;
+        
+        @JsonProperty("id")
+        public String id;
+        
+        @JsonProperty("name")
+        public String name;
+        
+        @JsonProperty("completed")
+        public Boolean completed;
+        
+        @JsonProperty("priority")
+        public Integer priority;
+        
+        @JsonProperty("dueTime")
+        public Long dueTime;
+        
+        @JsonProperty("recurrence")
+        public String recurrence;
+        
+        public Record() {}
+        
+        public Record(String op, String id, String name, Boolean completed) {
+            this.op = op;
+            this.id = id;
+            this.name = name;
+            this.completed = completed;
+        }
+        
+        public static Record added(Task task) {
+            Record record = new Record(OP_ADD, task.getId(), task.getName(), task.isCompleted() ? Boolean.TRUE : null);
+            record.priority = task.getPriority() != 0 ? task.getPriority() : null;
+            record.dueTime = task.getDueTime();
+            record.recurrence = task.getRecurrence();
+            return record;
+        }
+        
+        public static Record completed(String taskId, boolean completed) {
+            return new Record(OP_COMPLETE, taskId, null, completed);
+        }
+        
+        public static Record completed(Task task) {
+            Record record = completed(task.getId(), task.isCompleted());
+            if (task.getRecurrence() != null) {
+                record.dueTime = task.getDueTime();
+            }
+            return record;
+        }
+        
+        // Carries the full schedule; an absent dueTime or recurrence clears it
+        public static Record scheduled(Task task) {
+            Record record = new Record(OP_SCHEDULE, task.getId(), null, null);
+            record.priority = task.getPriority();
+            record.dueTime = task.getDueTime();
+            record.recurrence = task.getRecurrence();
+            return record;
+        }
+        
+        public static Record deleted(String taskId) {
+            return new Record(OP_DELETE, taskId, null, null);
+        }
+        
+        public static Record of(TaskChange change) {
+            if (change instanceof TaskChange.Added added) {
+                return added(added.task());
+            }
+            if (change instanceof TaskChange.Completed completed) {
+                Record record = completed(completed.taskId(), completed.completed());
+                record.dueTime = completed.dueTime();
+                return record;
+            }
+            if (change instanceof TaskChange.Scheduled scheduled) {
+                Record record = new Record(OP_SCHEDULE, scheduled.taskId(), null, null);
+                record.priority = scheduled.priority();
+                record.dueTime = scheduled.dueTime();
+                record.recurrence = scheduled.recurrence();
+                return record;
+            }
+            return deleted(change.taskId());
+        }
+    }
+}
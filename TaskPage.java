@@ -0,0 +1,25 @@
+package com.taskscheduler.model;
+
+import java.util.List;
+
+/**
+ * One page of a task listing plus the cursor for the page after it
+ */
+public class TaskPage {
+    private final List<Task> tasks;
+    private final String nextCursor;
+    
+    public TaskPage(List<Task> tasks, String nextCursor) {
+        this.tasks = tasks;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Task> getTasks() {
+        return tasks;
+    }
+    
+    // Opaque cursor for the next page, or null if this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,197 @@
+package com.taskscheduler.service;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Indexed binary min-heap of pending tasks
+ *
+ * Tasks are ordered by due time (undated tasks last), then by priority
+ * (higher first), then by the order they were queued. Entries are task
+ * positions (see {@link TaskStore}) with their due time and priority held
+ * in parallel primitive arrays, so the queue keeps no Task objects alive.
+ * A position -> heap slot index makes update and remove O(log n) instead
+ * of a linear search. Not thread-safe; TaskManager guards it with its own lock.
+ */
+public class TaskQueue {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long[] NONE = new long[0];
+    
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private long[] dueKeys = new long[INITIAL_CAPACITY];
+    private int[] priorities = new int[INITIAL_CAPACITY];
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    private int size;
+    private long nextSequence;
+    private final LongIntMap slotsByPosition = new LongIntMap(INITIAL_CAPACITY);
+    
+    /**
+     * Insert a task, or reposition it if it is already queued. O(log n)
+     */
+    public void offer(long position, Long dueTime, int priority) {
+        long dueKey = dueTime != null ? dueTime : Long.MAX_VALUE;
+        int slot = slotsByPosition.get(position, -1);
+        if (slot >= 0) {
+            dueKeys[slot] = dueKey;
+            priorities[slot] = priority;
+            if (!siftUp(slot)) {
+                siftDown(slot);
+            }
+            return;
+        }
+        if (size == positions.length) {
+            int capacity = size * 2;
+            positions = Arrays.copyOf(positions, capacity);
+            dueKeys = Arrays.copyOf(dueKeys, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+        }
+        positions[size] = position;
+        dueKeys[size] = dueKey;
+        priorities[size] = priority;
+        sequences[size] = nextSequence++;
+        slotsByPosition.put(position, size);
+        siftUp(size++);
+    }
+    
+    /**
+     * Remove a task by position. O(log n)
+     */
+    public boolean remove(long position) {
+        int slot = slotsByPosition.remove(position, -1);
+        if (slot < 0) {
+            return false;
+        }
+        int last = --size;
+        if (slot != last) {
+            copy(last, slot);
+            if (!siftUp(slot)) {
+                siftDown(slot);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Position of the task that is due next, or -1 if the queue is empty. O(1)
+     */
+    public long peek() {
+        return size == 0 ? -1 : positions[0];
+    }
+    
+    public boolean contains(long position) {
+        return slotsByPosition.containsKey(position);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Positions of the first {@code limit} tasks in queue order, without disturbing the heap.
+     * Walks the heap with a small frontier queue: O(k log k), independent of n.
+     */
+    public long[] top(int limit) {
+        int k = Math.min(limit, size);
+        if (k <= 0) {
+            return NONE;
+        }
+        long[] result = new long[k];
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(this::compare);
+        frontier.add(0);
+        for (int i = 0; i < k; i++) {
+            int slot = frontier.poll();
+            result[i] = positions[slot];
+            int child = 2 * slot + 1;
+            if (child < size) frontier.add(child);
+            if (child + 1 < size) frontier.add(child + 1);
+        }
+        return result;
+    }
+    
+    /**
+     * Positions of tasks whose due time is at or before {@code now}, soonest first, at most {@code limit}.
+     * Stops at the first task that is not yet due, so the cost is O(k log k).
+     */
+    public long[] due(long now, int limit) {
+        if (size == 0 || limit <= 0) {
+            return NONE;
+        }
+        long[] result = new long[Math.min(limit, 16)];
+        int count = 0;
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(this::compare);
+        frontier.add(0);
+        while (!frontier.isEmpty() && count < limit) {
+            int slot = frontier.poll();
+            if (dueKeys[slot] > now) {
+                break;
+            }
+            if (count == result.length) {
+                result = Arrays.copyOf(result, Math.min(limit, count * 2));
+            }
+            result[count++] = positions[slot];
+            int child = 2 * slot + 1;
+            if (child < size) frontier.add(child);
+            if (child + 1 < size) frontier.add(child + 1);
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+    
+    private int compare(int a, int b) {
+        int byDue = Long.compare(dueKeys[a], dueKeys[b]);
+        if (byDue != 0) return byDue;
+        int byPriority = Integer.compare(priorities[b], priorities[a]);
+        if (byPriority != 0) return byPriority;
+        return Long.compare(sequences[a], sequences[b]);
+    }
+    
+    private boolean siftUp(int slot) {
+        int start = slot;
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (compare(slot, parent) >= 0) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+        return slot != start;
+    }
+    
+    private void siftDown(int slot) {
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && compare(right, child) < 0) {
+                child = right;
+            }
+            if (compare(slot, child) <= 0) {
+                break;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+    
+    private void swap(int a, int b) {
+        long position = positions[a];
+        long dueKey = dueKeys[a];
+        int priority = priorities[a];
+        long sequence = sequences[a];
+        copy(b, a);
+        positions[b] = position;
+        dueKeys[b] = dueKey;
+        priorities[b] = priority;
+        sequences[b] = sequence;
+        slotsByPosition.put(position, b);
+    }
+    
+    private void copy(int from, int to) {
+        positions[to] = positions[from];
+        dueKeys[to] = dueKeys[from];
+        priorities[to] = priorities[from];
+        sequences[to] = sequences[from];
+        slotsByPosition.put(positions[to], to);
+    }
+}
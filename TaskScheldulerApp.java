@@ -1,346 +1,146 @@
-package com.taskscheduler.web;
+package com.taskscheduler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
-import com.taskscheduler.model.Task;
-import com.taskscheduler.service.EmailService;
+import com.taskscheduler.service.CronService;
+import com.taskscheduler.service.DueTaskDispatcher;
+import com.taskscheduler.service.FileStorage;
+import com.taskscheduler.service.JdbcStorage;
+import com.taskscheduler.service.JfrTraceSink;
+import com.taskscheduler.service.ReminderDelivery;
+import com.taskscheduler.service.ReminderJob;
+import com.taskscheduler.service.ReminderTemplate;
+import com.taskscheduler.service.SlowRequestLog;
+import com.taskscheduler.service.Storage;
+import com.taskscheduler.service.SubscriberRegistry;
 import com.taskscheduler.service.TaskManager;
+import com.taskscheduler.service.VerificationMailer;
+import com.taskscheduler.web.WebServer;
 
-import java.io.*;
-import java.net.InetSocketAddress;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import javax.mail.Session;
 import java.nio.file.Paths;
-import java.util.Base64;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * HTTP Server for handling web interface requests
+ * Main application: web server plus the in-process reminder scheduler
+ *
+ * Usage:
+ *   java -jar task-scheduler.jar                hourly reminders
+ *   java -jar task-scheduler.jar test           reminders every 5 minutes
+ *   java -jar task-scheduler.jar external-cron  no scheduler; reminders come from the crontab CronTask
+ *
+ * Requests slower than -Dtaskscheduler.slowRequestMillis (default 500) are written with
+ * their stage timings to logs/slow-requests.log. Every request is also emitted as a JFR
+ * event while a flight recording is running.
+ *
+ * Static files are cached in memory; -Dtaskscheduler.dev=true reloads them as they are edited.
+ *
+ * Tasks with a due time are logged as they fall due by an in-process timing wheel.
+ *
+ * Storage and request handling are chosen with system properties:
+ *   -Dtaskscheduler.executor=dispatcher|pool|virtual  request executor (dispatcher, the single
+ *                                                      HttpServer thread; virtual needs Java 21)
+ *   -Dtaskscheduler.storage=file|jdbc                 task storage (file); jdbc keeps tasks in the
+ *                                                      embedded H2 database, while subscriptions stay
+ *                                                      on the data files
+ *   -Dtaskscheduler.wal=true                          write-ahead log for file storage (false)
+ *   -Dtaskscheduler.binarySnapshots=true              binary tasks.bin/subscribers.bin for file storage (false)
  */
-public class WebServer {
-    private final TaskManager taskManager;
-    private final EmailService emailService;
-    private final ObjectMapper objectMapper;
-    private HttpServer server;
+public class TaskSchedulerApp {
+    private static final int PORT = 8080;
+    private static final String FROM_ADDRESS = "no-reply@taskplanner.local";
+    private static final String SLOW_REQUEST_LOG = "logs/slow-requests.log";
     
-    public WebServer(TaskManager taskManager, EmailService emailService) {
-        this.taskManager = taskManager;
-        this.emailService = emailService;
-        this.objectMapper = new ObjectMapper();
-}
-    
-    public void start(int port) throws IOException {
-        server = HttpServer.create(new InetSocketAddress(port), 0);
-        
-        // Static file serving
-        server.createContext("/", new StaticFileHandler());
-        
-        // API endpoints
-        server.createContext("/api/tasks", new TaskHandler());
-        server.createContext("/api/subscribe", new SubscribeHandler());
-        server.createContext("/verify", new VerifyHandler());  
-        server.createContext("/unsubscribe", new UnsubscribeHandler());
-        
-        server.setExecutor(null);
-        server.start();
-        
-        System.out.println("Task Scheduler server started on http://localhost:" + port);
-    }
-    
-    public void stop() {
-        if (server != null) {
-            server.stop(0);
-        }
-    }
-    
-    // Static file handler for serving HTML, CSS, JS
-    private class StaticFileHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String path = exchange.getRequestURI().getPath();
-            
-            if (path.equals("/")) {
-                path = "/index.html";
-            }
-            
-            String filePath = "src/main/resources/static" + path;
-            File file = new File(filePath);
-            
-            if (file.exists() && !file.isDirectory()) {
-                String contentType = getContentType(path);
-                exchange.getResponseHeaders().set("Content-Type", contentType);
-                
-                byte[] fileContent = Files.readAllBytes(file.toPath());
-                exchange.sendResponseHeaders(200, fileContent.length);
-                
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(fileContent);
-                }
-            } else {
-                // Return 404
-                String response = "404 Not Found";
-                exchange.sendResponseHeaders(404, response.length());
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(response.getBytes());
-                }
-            }
-        }
-        
-        private String getContentType(String path) {
-            if (path.endsWith(".html")) return "text/html";
-            if (path.endsWith(".css")) return "text/css";
-            if (path.endsWith(".js")) return "application/javascript";
-            if (path.endsWith(".json")) return "application/json";
-            return "text/plain";
-        }
-    }
-    
-    // Task API handler
-    private class TaskHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String method = exchange.getRequestMethod();
-            
-            switch (method) {
-                case "GET":
-                    handleGetTasks(exchange);
-                    break;
-                case "POST":
-                    handleAddTask(exchange);
-                    break;
-                case "PUT":
-                    handleUpdateTask(exchange);
-                    break;
-                case "DELETE":
-                    handleDeleteTask(exchange);
-                    break;
-                default:
-                    sendResponse(exchange, 405, "Method not allowed");
-            }
-        }
-        
-        private void handleGetTasks(HttpExchange exchange) throws IOException {
-            List<Task> tasks = taskManager.getAllTasks();
-            String json = objectMapper.writeValueAsString(tasks);
-            
-            exchange.getResponseHeaders().set("Content-Type", "application/json");
-            sendResponse(exchange, 200, json);
-        }
-        
-        private void handleAddTask(HttpExchange exchange) throws IOException {
-            String requestBody = readRequestBody(exchange);
-            Map<String, String> params = parseFormData(requestBody);
-            
-            String taskName = params.get("task-name");
-            if (taskName != null && !taskName.trim().isEmpty()) {
-                boolean success = taskManager.addTask(taskName);
-                if (success) {
-                    sendResponse(exchange, 200, "{\"success\": true}");
-                } else {
-                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Task already exists\"}");
-                }
-            } else {
-                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Task name is required\"}");
-            }
-        }
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "";
         
-        private void handleUpdateTask(HttpExchange exchange) throws IOException {
-            String requestBody = readRequestBody(exchange);
-            Map<String, String> params = parseJsonData(requestBody);
-            
-            String taskId = params.get("id");
-            String completedStr = params.get("completed");
-            
-            if (taskId != null && completedStr != null) {
-                boolean completed = Boolean.parseBoolean(completedStr);
-                boolean success = taskManager.markTaskAsCompleted(taskId, completed);
-                
-                if (success) {
-                    sendResponse(exchange, 200, "{\"success\": true}");
-                } else {
-                    sendResponse(exchange, 404, "{\"success\": false, \"error\": \"Task not found\"}");
-                }
-            } else {
-                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Invalid parameters\"}");
-            }
-        }
-        
-        private void handleDeleteTask(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            Map<String, String> params = parseQueryString(query);
-            
-            String taskId = params.get("id");
-            if (taskId != null) {
-                boolean success = taskManager.deleteTask(taskId);
-                
-                if (success) {
-                    sendResponse(exchange, 200, "{\"success\": true}");
-                } else {
-                    sendResponse(exchange, 404, "{\"success\": false, \"error\": \"Task not found\"}");
-                }
-            } else {
-                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Task ID is required\"}");
-            }
-        }
-    }
-    
-    // Email subscription handler
-    private class SubscribeHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            if (!"POST".equals(exchange.getRequestMethod())) {
-                sendResponse(exchange, 405, "Method not allowed");
-                return;
-            }
+        try {
+            WebServer.ExecutorMode executorMode = executorMode(System.getProperty("taskscheduler.executor", "dispatcher"));
+            FileStorage fileStorage = new FileStorage(Boolean.getBoolean("taskscheduler.wal"),
+                    Boolean.getBoolean("taskscheduler.binarySnapshots"));
+            Storage taskStorage = "jdbc".equalsIgnoreCase(System.getProperty("taskscheduler.storage", "file"))
+                    ? new JdbcStorage() : fileStorage;
+            TaskManager taskManager = new TaskManager(taskStorage);
+            SubscriberRegistry subscriberRegistry = new SubscriberRegistry(fileStorage);
+            ReminderDelivery delivery = new ReminderDelivery(Session.getInstance(smtpProperties()));
+            VerificationMailer verificationMailer = new VerificationMailer(delivery, FROM_ADDRESS,
+                    "http://localhost:" + PORT + "/verify");
             
-            String requestBody = readRequestBody(exchange);
-            Map<String, String> params = parseFormData(requestBody);
+            WebServer webServer = new WebServer(taskManager, subscriberRegistry, verificationMailer);
+            webServer.addTraceSink(new SlowRequestLog(
+                    Duration.ofMillis(Long.getLong("taskscheduler.slowRequestMillis", 500)), Paths.get(SLOW_REQUEST_LOG)));
+            webServer.addTraceSink(new JfrTraceSink());
+            webServer.setDevMode(Boolean.getBoolean("taskscheduler.dev"));
+            webServer.start(PORT, executorMode);
             
-            String email = params.get("email");
-            if (email != null && !email.trim().isEmpty()) {
-                boolean success = emailService.subscribeEmail(email);
+            CronService cronService = null;
+            if (!"external-cron".equalsIgnoreCase(mode)) {
+                String schedule = "test".equalsIgnoreCase(mode) ? CronService.EVERY_FIVE_MINUTES : CronService.HOURLY;
+                ReminderTemplate template = new ReminderTemplate(taskManager,
+                        "http://localhost:" + PORT + "/unsubscribe?email=");
                 
-                if (success) {
-                    sendResponse(exchange, 200, "{\"success\": true, \"message\": \"Verification email sent\"}");
-                } else {
-                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Invalid email or already subscribed\"}");
-                }
-            } else {
-                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Email is required\"}");
+                cronService = new CronService();
+                cronService.schedule("task-reminders", schedule, CronService.MisfirePolicy.FIRE_ONCE,
+                        new ReminderJob(fileStorage, taskManager, template, delivery, FROM_ADDRESS));
             }
-        }
-    }
-    
-    // Email verification handler
-    private class VerifyHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            Map<String, String> params = parseQueryString(query);
             
-            String encodedEmail = params.get("email");
-            String code = params.get("code");
+            ExecutorService dueExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "due-tasks");
+                thread.setDaemon(true);
+                return thread;
+            });
+            DueTaskDispatcher dueTaskDispatcher = new DueTaskDispatcher(taskManager,
+                    task -> System.out.println("Task due: " + task.getName() + " (" + task.getId() + ")"), dueExecutor);
+            dueTaskDispatcher.start();
             
-            if (encodedEmail != null && code != null) {
-                try {
-                    String email = new String(Base64.getDecoder().decode(encodedEmail));
-                    boolean success = emailService.verifySubscription(email, code);
-                    
-                    String response = success ? 
-                        "<html><body><h2>Subscription Verified!</h2><p>You will now receive task reminders.</p></body></html>" :
-                        "<html><body><h2>Verification Failed</h2><p>Invalid verification link.</p></body></html>";
-                    
-                    exchange.getResponseHeaders().set("Content-Type", "text/html");
-                    sendResponse(exchange, success ? 200 : 400, response);
-                    
-                } catch (IllegalArgumentException e) {
-                    sendResponse(exchange, 400, "<html><body><h2>Invalid Link</h2></body></html>");
+            CronService scheduler = cronService;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (scheduler != null) {
+                    scheduler.shutdown();
                 }
-            } else {
-                sendResponse(exchange, 400, "<html><body><h2>Missing Parameters</h2></body></html>");
-            }
-        }
-    }
-    
-    // Unsubscribe handler
-    private class UnsubscribeHandler implements HttpHandler {
-        @Override
-        public void handle(HttpExchange exchange) throws IOException {
-            String query = exchange.getRequestURI().getQuery();
-            Map<String, String> params = parseQueryString(query);
-            
-            String encodedEmail = params.get("email");
-            
-            if (encodedEmail != null) {
-                try {
-                    String email = new String(Base64.getDecoder().decode(encodedEmail));
-                    boolean success = emailService.unsubscribeEmail(email);
-                    
-                    String response = success ?
-                        "<html><body><h2>Unsubscribed</h2><p>You have been unsubscribed from task reminders.</p></body></html>" :
-                        "<html><body><h2>Error</h2><p>Unable to unsubscribe.</p></body></html>";
-                    
-                    exchange.getResponseHeaders().set("Content-Type", "text/html");
-                    sendResponse(exchange, success ? 200 : 400, response);
-                    
-                } catch (IllegalArgumentException e) {
-                    sendResponse(exchange, 400, "<html><body><h2>Invalid Link</h2></body></html>");
+                dueTaskDispatcher.stop();
+                dueExecutor.shutdown();
+                webServer.stop();
+                subscriberRegistry.close();
+                taskManager.close();
+                if (fileStorage != taskStorage) {
+                    // Only holds subscriptions here; folds their log
+                    fileStorage.close(fileStorage::loadTasks);
                 }
-            } else {
-                sendResponse(exchange, 400, "<html><body><h2>Missing Parameters</h2></body></html>");
-            }
-        }
-    }
-    
-    // Helper methods
-    private String readRequestBody(HttpExchange exchange) throws IOException {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
-            StringBuilder body = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                body.append(line);
-            }
-            return body.toString();
-        }
-    }
-    
-    private Map<String, String> parseFormData(String formData) {
-        Map<String, String> params = new HashMap<>();
-        if (formData != null && !formData.isEmpty()) {
-            String[] pairs = formData.split("&");
-            for (String pair : pairs) {
-                String[] keyValue = pair.split("=", 2);
-                if (keyValue.length == 2) {
-                    try {
-                        String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
-                        String value = URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
-                        params.put(key, value);
-                    } catch (Exception e) {
-                        // Skip invalid pairs
-                    }
-                }
-            }
+            }, "shutdown"));
+        } catch (Exception e) {
+            System.err.println("Error starting Task Scheduler: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
         }
-        return params;
     }
     
-    private Map<String, String> parseJsonData(String jsonData) {
-        try {
-            return objectMapper.readValue(jsonData, Map.class);
-        } catch (Exception e) {
-            return new HashMap<>();
+    private static WebServer.ExecutorMode executorMode(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "dispatcher":
+                return WebServer.ExecutorMode.DISPATCHER_THREAD;
+            case "pool":
+                return WebServer.ExecutorMode.PLATFORM_POOL;
+            case "virtual":
+                return WebServer.ExecutorMode.VIRTUAL_THREADS;
+            default:
+                throw new IllegalArgumentException("taskscheduler.executor must be dispatcher, pool or virtual: " + name);
         }
     }
     
-    private Map<String, String> parseQueryString(String query) {
-        Map<String, String> params = new HashMap<>();
-        if (query != null && !query.isEmpty()) {
-            String[] pairs = query.split("&");
-            for (String pair : pairs) {
-                String[] keyValue = pair.split("=", 2);
-                if (keyValue.length == 2) {
-                    try {
-                        String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
-                        String value = URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
-                        params.put(key, value);
-                    } catch (Exception e) {
-                        // Skip invalid pairs
-                    }
-                }
+    // Mailpit defaults; override with -Dmail.smtp.host=... etc.
+    private static Properties smtpProperties() {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", "localhost");
+        properties.put("mail.smtp.port", "1025");
+        properties.put("mail.smtp.auth", "false");
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("mail.")) {
+                properties.put(name, System.getProperty(name));
             }
         }
-        return params;
+        return properties;
     }
-    
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
-    }
\ No newline at end of file
+}
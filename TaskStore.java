@@ -0,0 +1,712 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Columnar in-memory task table
+ *
+ * Each task is one slot across parallel primitive arrays rather than a Task
+ * object with its own id String, name String and boxed due time. UUID ids
+ * are held as two longs, the completed flag and priority share one long,
+ * names are UTF-8 bytes in a single arena and recurrence periods are
+ * interned. Task objects are only built when a caller asks for one.
+ *
+ * Slots are kept in ascending position (insertion) order. Positions never
+ * change, so callers use them as stable handles and paging cursors. A removed
+ * task leaves a dead slot behind; once dead slots outnumber live ones the
+ * columns are compacted. Ids that are not canonical lower-case UUIDs (e.g.
+ * from hand-edited files) are interned as strings instead.
+ *
+ * Thread-safe: reads share a read lock, writes take the write lock.
+ */
+class TaskStore implements Iterable<Task> {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int ITERATOR_CHUNK = 256;
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    
+    // State column: priority in the low 32 bits, flags above
+    private static final long PRIORITY_BITS = 0xFFFFFFFFL;
+    private static final long FLAG_LIVE = 1L << 32;
+    private static final long FLAG_COMPLETED = 1L << 33;
+    private static final long FLAG_DUE_TIME = 1L << 34;
+    private static final long FLAG_TEXT_ID = 1L << 35;
+    
+    /**
+     * Receives tasks from {@link #scan}; runs under the read lock and must not call back into the store
+     */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * @return false to stop the scan
+         */
+        boolean visit(long position, Task task);
+    }
+    
+    private final StampedLock lock = new StampedLock();
+    
+    // Columns, indexed by slot
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private long[] idHigh = new long[INITIAL_CAPACITY];
+    private long[] idLow = new long[INITIAL_CAPACITY];
+    private long[] states = new long[INITIAL_CAPACITY];
+    private long[] dueTimes = new long[INITIAL_CAPACITY];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY];
+    private int[] nameLengths = new int[INITIAL_CAPACITY];
+    private int[] recurrenceRefs = new int[INITIAL_CAPACITY];
+    private int slotCount;
+    private int liveCount;
+    private long nextPosition;
+    
+    private byte[] names = new byte[INITIAL_CAPACITY * 16];
+    private int namesLength;
+    
+    // Open-addressing id index holding slot + 1; 0 marks an empty cell
+    private int[] idTable = new int[INITIAL_CAPACITY * 2];
+    
+    private StringPool recurrencePool = new StringPool();
+    private StringPool textIdPool = new StringPool();
+    
+    // Live slots by status, so a status-filtered scan jumps from match to match
+    private SlotBits pendingSlots = new SlotBits(INITIAL_CAPACITY);
+    private SlotBits completedSlots = new SlotBits(INITIAL_CAPACITY);
+    
+    /**
+     * Append a task after every existing one and return its position
+     */
+    long add(Task task) {
+        long stamp = lock.writeLock();
+        try {
+            long position = nextPosition++;
+            ensureCapacity(slotCount + 1);
+            write(slotCount, position, task);
+            indexId(slotCount++);
+            return position;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Put a removed task back at its old position, e.g. when persisting its removal failed
+     */
+    void insert(Task task, long position) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotAfter(position - 1);
+            if (slot < slotCount && positions[slot] == position) {
+                if ((states[slot] & FLAG_LIVE) != 0) {
+                    throw new IllegalStateException("Position already in use: " + position);
+                }
+                write(slot, position, task);
+                indexId(slot);
+                return;
+            }
+            ensureCapacity(slotCount + 1);
+            shiftRight(slot);
+            slotCount++;
+            nextPosition = Math.max(nextPosition, position + 1);
+            write(slot, position, task);
+            rebuildIdTable();
+            rebuildStatusIndex();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Overwrite the completed flag, priority, due time and recurrence of a stored task
+     *
+     * @return the task's position, or -1 if it is not stored
+     */
+    long update(Task task) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(task.getId());
+            if (slot < 0) {
+                return -1;
+            }
+            states[slot] = (states[slot] & (FLAG_LIVE | FLAG_TEXT_ID)) | scheduleBits(task);
+            indexStatus(slot);
+            dueTimes[slot] = task.getDueTime() != null ? task.getDueTime() : 0;
+            recurrenceRefs[slot] = task.getRecurrence() != null ? recurrencePool.intern(task.getRecurrence()) : -1;
+            return positions[slot];
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Remove a task and return it, or null if it is not stored
+     */
+    Task remove(String taskId) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(taskId);
+            if (slot < 0) {
+                return null;
+            }
+            Task removed = materialize(slot);
+            unindexId(slot);
+            states[slot] &= ~FLAG_LIVE;
+            pendingSlots.clear(slot);
+            completedSlots.clear(slot);
+            int dead = slotCount - liveCount;
+            if (dead >= MIN_COMPACTION_GARBAGE && dead > liveCount) {
+                compact();
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    Task get(String taskId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(taskId);
+            return slot >= 0 ? materialize(slot) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    Task getAt(long position) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotAfter(position) - 1;
+            if (slot < 0 || positions[slot] != position || (states[slot] & FLAG_LIVE) == 0) {
+                return null;
+            }
+            return materialize(slot);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * @return the task's position, or -1 if it is not stored
+     */
+    long positionOf(String taskId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(taskId);
+            return slot >= 0 ? positions[slot] : -1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return liveCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Visit tasks after the given position in position order, optionally only completed
+     * (true) or pending (false) ones. A status filter follows that status's slot bitmap,
+     * so the cost depends on the tasks visited, not on the ones skipped.
+     */
+    void scan(long afterPosition, Boolean completed, Visitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            int first = slotAfter(afterPosition);
+            if (completed == null) {
+                for (int slot = first; slot < slotCount; slot++) {
+                    if ((states[slot] & FLAG_LIVE) != 0 && !visitor.visit(positions[slot], materialize(slot))) {
+                        return;
+                    }
+                }
+                return;
+            }
+            SlotBits matching = completed ? completedSlots : pendingSlots;
+            for (int slot = matching.next(first); slot >= 0 && slot < slotCount; slot = matching.next(slot + 1)) {
+                if (!visitor.visit(positions[slot], materialize(slot))) {
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Weakly consistent iteration in position order. Tasks are materialized a chunk at
+     * a time and the lock is released between chunks, so writers are never held up
+     * by a slow consumer.
+     */
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private final List<Task> chunk = new ArrayList<>(ITERATOR_CHUNK);
+            private int next;
+            private long lastPosition = -1;
+            private boolean exhausted;
+            
+            @Override
+            public boolean hasNext() {
+                if (next < chunk.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                chunk.clear();
+                next = 0;
+                scan(lastPosition, null, (position, task) -> {
+                    chunk.add(task);
+                    lastPosition = position;
+                    return chunk.size() < ITERATOR_CHUNK;
+                });
+                exhausted = chunk.size() < ITERATOR_CHUNK;
+                return !chunk.isEmpty();
+            }
+            
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.get(next++);
+            }
+        };
+    }
+    
+    // Callers hold the write lock; the slot is new or dead and becomes live
+    private void write(int slot, long position, Task task) {
+        boolean textId = !isCanonicalUuid(task.getId());
+        byte[] name = task.getName().getBytes(StandardCharsets.UTF_8);
+        ensureNameCapacity(name.length);
+        System.arraycopy(name, 0, names, namesLength, name.length);
+        
+        positions[slot] = position;
+        if (textId) {
+            idHigh[slot] = 0;
+            idLow[slot] = textIdPool.intern(task.getId());
+        } else {
+            idHigh[slot] = uuidHigh(task.getId());
+            idLow[slot] = uuidLow(task.getId());
+        }
+        states[slot] = FLAG_LIVE | (textId ? FLAG_TEXT_ID : 0) | scheduleBits(task);
+        dueTimes[slot] = task.getDueTime() != null ? task.getDueTime() : 0;
+        nameOffsets[slot] = namesLength;
+        nameLengths[slot] = name.length;
+        recurrenceRefs[slot] = task.getRecurrence() != null ? recurrencePool.intern(task.getRecurrence()) : -1;
+        namesLength += name.length;
+        indexStatus(slot);
+    }
+    
+    // Slot is live; put it in the bitmap for its status
+    private void indexStatus(int slot) {
+        if ((states[slot] & FLAG_COMPLETED) != 0) {
+            completedSlots.set(slot);
+            pendingSlots.clear(slot);
+        } else {
+            pendingSlots.set(slot);
+            completedSlots.clear(slot);
+        }
+    }
+    
+    // After slots have moved
+    private void rebuildStatusIndex() {
+        pendingSlots = new SlotBits(positions.length);
+        completedSlots = new SlotBits(positions.length);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((states[slot] & FLAG_LIVE) != 0) {
+                indexStatus(slot);
+            }
+        }
+    }
+    
+    private Task materialize(int slot) {
+        long state = states[slot];
+        String id = (state & FLAG_TEXT_ID) != 0
+                ? textIdPool.get((int) idLow[slot])
+                : new UUID(idHigh[slot], idLow[slot]).toString();
+        String name = new String(names, nameOffsets[slot], nameLengths[slot], StandardCharsets.UTF_8);
+        int recurrenceRef = recurrenceRefs[slot];
+        return new Task(id, name, (state & FLAG_COMPLETED) != 0, (int) state,
+                (state & FLAG_DUE_TIME) != 0 ? dueTimes[slot] : null,
+                recurrenceRef >= 0 ? recurrencePool.get(recurrenceRef) : null);
+    }
+    
+    private static long scheduleBits(Task task) {
+        return (task.getPriority() & PRIORITY_BITS)
+                | (task.isCompleted() ? FLAG_COMPLETED : 0)
+                | (task.getDueTime() != null ? FLAG_DUE_TIME : 0);
+    }
+    
+    // First slot whose position is greater than the given one
+    private int slotAfter(long position) {
+        int low = 0;
+        int high = slotCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // Id index
+    
+    private int find(String taskId) {
+        if (taskId == null) {
+            return -1;
+        }
+        boolean textId = !isCanonicalUuid(taskId);
+        long high;
+        long low;
+        if (textId) {
+            int ref = textIdPool.find(taskId);
+            if (ref < 0) {
+                return -1;
+            }
+            high = 0;
+            low = ref;
+        } else {
+            high = uuidHigh(taskId);
+            low = uuidLow(taskId);
+        }
+        int mask = idTable.length - 1;
+        for (int cell = hash(high, low) & mask; idTable[cell] != 0; cell = (cell + 1) & mask) {
+            int slot = idTable[cell] - 1;
+            if (idHigh[slot] == high && idLow[slot] == low && ((states[slot] & FLAG_TEXT_ID) != 0) == textId) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    private void indexId(int slot) {
+        liveCount++;
+        if (liveCount * 2 > idTable.length) {
+            rebuildIdTable();
+            return;
+        }
+        int mask = idTable.length - 1;
+        int cell = hash(idHigh[slot], idLow[slot]) & mask;
+        while (idTable[cell] != 0) {
+            cell = (cell + 1) & mask;
+        }
+        idTable[cell] = slot + 1;
+    }
+    
+    private void unindexId(int slot) {
+        liveCount--;
+        int mask = idTable.length - 1;
+        int gap = hash(idHigh[slot], idLow[slot]) & mask;
+        while (idTable[gap] != slot + 1) {
+            gap = (gap + 1) & mask;
+        }
+        // Backward-shift deletion: pull later entries of the probe run into the gap
+        for (int next = (gap + 1) & mask; idTable[next] != 0; next = (next + 1) & mask) {
+            int other = idTable[next] - 1;
+            int home = hash(idHigh[other], idLow[other]) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                idTable[gap] = idTable[next];
+                gap = next;
+            }
+        }
+        idTable[gap] = 0;
+    }
+    
+    // Recounts live slots; slot numbers may have changed
+    private void rebuildIdTable() {
+        liveCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((states[slot] & FLAG_LIVE) != 0) {
+                liveCount++;
+            }
+        }
+        int capacity = INITIAL_CAPACITY * 2;
+        while (capacity < liveCount * 3) {
+            capacity <<= 1;
+        }
+        idTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((states[slot] & FLAG_LIVE) == 0) {
+                continue;
+            }
+            int cell = hash(idHigh[slot], idLow[slot]) & mask;
+            while (idTable[cell] != 0) {
+                cell = (cell + 1) & mask;
+            }
+            idTable[cell] = slot + 1;
+        }
+    }
+    
+    private static int hash(long high, long low) {
+        long h = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    // Storage management
+    
+    private void ensureCapacity(int slots) {
+        if (slots <= positions.length) {
+            return;
+        }
+        int capacity = Math.min(MAX_ARRAY_LENGTH, Math.max(slots, positions.length + (positions.length >> 1)));
+        resizeColumns(capacity);
+    }
+    
+    private void resizeColumns(int capacity) {
+        positions = Arrays.copyOf(positions, capacity);
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        states = Arrays.copyOf(states, capacity);
+        dueTimes = Arrays.copyOf(dueTimes, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        recurrenceRefs = Arrays.copyOf(recurrenceRefs, capacity);
+        pendingSlots.ensureCapacity(capacity);
+        completedSlots.ensureCapacity(capacity);
+    }
+    
+    private void ensureNameCapacity(int extra) {
+        long required = (long) namesLength + extra;
+        if (required <= names.length) {
+            return;
+        }
+        if (required > MAX_ARRAY_LENGTH) {
+            throw new IllegalStateException("Task names exceed the maximum store size");
+        }
+        names = Arrays.copyOf(names, (int) Math.min(MAX_ARRAY_LENGTH, Math.max(required, (long) names.length * 2)));
+    }
+    
+    // Open a gap at the given slot for an out-of-order insert
+    private void shiftRight(int slot) {
+        int count = slotCount - slot;
+        System.arraycopy(positions, slot, positions, slot + 1, count);
+        System.arraycopy(idHigh, slot, idHigh, slot + 1, count);
+        System.arraycopy(idLow, slot, idLow, slot + 1, count);
+        System.arraycopy(states, slot, states, slot + 1, count);
+        System.arraycopy(dueTimes, slot, dueTimes, slot + 1, count);
+        System.arraycopy(nameOffsets, slot, nameOffsets, slot + 1, count);
+        System.arraycopy(nameLengths, slot, nameLengths, slot + 1, count);
+        System.arraycopy(recurrenceRefs, slot, recurrenceRefs, slot + 1, count);
+    }
+    
+    // Drop dead slots and their name bytes, and re-intern pooled strings that are still referenced
+    private void compact() {
+        int liveNameBytes = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if ((states[slot] & FLAG_LIVE) != 0) {
+                liveNameBytes += nameLengths[slot];
+            }
+        }
+        byte[] compactedNames = new byte[Math.max(INITIAL_CAPACITY * 16, liveNameBytes + (liveNameBytes >> 1))];
+        StringPool compactedRecurrences = new StringPool();
+        StringPool compactedTextIds = new StringPool();
+        
+        int to = 0;
+        int nameOffset = 0;
+        for (int from = 0; from < slotCount; from++) {
+            if ((states[from] & FLAG_LIVE) == 0) {
+                continue;
+            }
+            positions[to] = positions[from];
+            idHigh[to] = idHigh[from];
+            idLow[to] = (states[from] & FLAG_TEXT_ID) != 0
+                    ? compactedTextIds.intern(textIdPool.get((int) idLow[from]))
+                    : idLow[from];
+            states[to] = states[from];
+            dueTimes[to] = dueTimes[from];
+            System.arraycopy(names, nameOffsets[from], compactedNames, nameOffset, nameLengths[from]);
+            nameOffsets[to] = nameOffset;
+            nameLengths[to] = nameLengths[from];
+            nameOffset += nameLengths[from];
+            recurrenceRefs[to] = recurrenceRefs[from] >= 0
+                    ? compactedRecurrences.intern(recurrencePool.get(recurrenceRefs[from]))
+                    : -1;
+            to++;
+        }
+        slotCount = to;
+        names = compactedNames;
+        namesLength = nameOffset;
+        recurrencePool = compactedRecurrences;
+        textIdPool = compactedTextIds;
+        resizeColumns(Math.max(INITIAL_CAPACITY, slotCount + (slotCount >> 1)));
+        rebuildIdTable();
+        rebuildStatusIndex();
+    }
+    
+    // Only the canonical lower-case form round-trips through UUID.toString()
+    private static boolean isCanonicalUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static long uuidHigh(String id) {
+        return parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18);
+    }
+    
+    private static long uuidLow(String id) {
+        return parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36);
+    }
+    
+    private static long parseHex(String text, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value << 4 | Character.digit(text.charAt(i), 16);
+        }
+        return value;
+    }
+    
+    /**
+     * Set of slots as a bitmap with two summary levels: a bit per non-empty word,
+     * and a bit per non-empty summary word. Finding the next set slot skips 4096
+     * empty slots per summary bit and 262144 per top-level bit.
+     */
+    private static final class SlotBits {
+        private long[] words;
+        private long[] summary;
+        private long[] top;
+        
+        SlotBits(int capacity) {
+            words = new long[0];
+            summary = new long[0];
+            top = new long[0];
+            ensureCapacity(capacity);
+        }
+        
+        void ensureCapacity(int capacity) {
+            int wordCount = (capacity + 63) >>> 6;
+            if (wordCount > words.length) {
+                words = Arrays.copyOf(words, wordCount);
+                summary = Arrays.copyOf(summary, (wordCount + 63) >>> 6);
+                top = Arrays.copyOf(top, (summary.length + 63) >>> 6);
+            }
+        }
+        
+        void set(int slot) {
+            int word = slot >>> 6;
+            words[word] |= 1L << slot;
+            summary[word >>> 6] |= 1L << word;
+            top[word >>> 12] |= 1L << (word >>> 6);
+        }
+        
+        void clear(int slot) {
+            int word = slot >>> 6;
+            words[word] &= ~(1L << slot);
+            if (words[word] == 0) {
+                summary[word >>> 6] &= ~(1L << word);
+                if (summary[word >>> 6] == 0) {
+                    top[word >>> 12] &= ~(1L << (word >>> 6));
+                }
+            }
+        }
+        
+        /**
+         * First set slot at or after from, or -1
+         */
+        int next(int from) {
+            int word = from >>> 6;
+            if (word >= words.length) {
+                return -1;
+            }
+            long bits = words[word] & (-1L << from);
+            if (bits == 0) {
+                word = nextWord(word + 1);
+                if (word < 0) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        
+        // First non-empty word at or after from, or -1
+        private int nextWord(int from) {
+            int index = from >>> 6;
+            if (index >= summary.length) {
+                return -1;
+            }
+            long bits = summary[index] & (-1L << from);
+            if (bits == 0) {
+                index = nextSummary(index + 1);
+                if (index < 0) {
+                    return -1;
+                }
+                bits = summary[index];
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        
+        // First non-empty summary word at or after from, or -1
+        private int nextSummary(int from) {
+            int index = from >>> 6;
+            if (index >= top.length) {
+                return -1;
+            }
+            long bits = top[index] & (-1L << from);
+            while (bits == 0) {
+                if (++index >= top.length) {
+                    return -1;
+                }
+                bits = top[index];
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+    
+    /**
+     * Interned strings referenced by index
+     */
+    private static final class StringPool {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        
+        int intern(String value) {
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                ref = values.size();
+                values.add(value);
+                refs.put(value, ref);
+            }
+            return ref;
+        }
+        
+        int find(String value) {
+            Integer ref = refs.get(value);
+            return ref != null ? ref : -1;
+        }
+        
+        String get(int ref) {
+            return values.get(ref);
+        }
+    }
+}
@@ -1,20 +1,109 @@
 package com.taskscheduler.service;
 
+import com.taskscheduler.model.BatchOperation;
+import com.taskscheduler.model.BatchResult;
 import com.taskscheduler.model.Task;
+import com.taskscheduler.model.TaskEvent;
+import com.taskscheduler.model.TaskPage;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Service class for task management operations
  * Equivalent to the PHP functions for task handling
+ *
+ * Tasks are loaded from storage once and kept in memory; storage is
+ * only written to persist mutations, never re-read on the request path.
+ *
+ * Tasks live in a columnar {@link TaskStore} rather than as Task objects;
+ * a Task is only materialized when one is returned to a caller, and every
+ * returned Task is a fresh copy the caller may keep or modify.
+ *
+ * Concurrency: mutations lock only the stripe of the task id they touch,
+ * and new names are claimed atomically in the name index, so writers on
+ * different tasks run in parallel. Readers copy a task out under the
+ * store's read lock, so they always see a consistent task.
  */
 public class TaskManager {
-    private final FileStorage fileStorage;
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    private static final Counter ADD_OPERATIONS = operationCounter("add");
+    private static final Counter COMPLETE_OPERATIONS = operationCounter("complete");
+    private static final Counter SCHEDULE_OPERATIONS = operationCounter("schedule");
+    private static final Counter DELETE_OPERATIONS = operationCounter("delete");
+    private static final Counter BATCH_OPERATIONS = operationCounter("batch");
+    private static final Counter DUPLICATES = METRICS.counter("taskscheduler_task_duplicates_total",
+            "Tasks not added because a task with the same name exists");
+    private static final Map<TaskEvent.Type, Counter> CHANGES = new EnumMap<>(TaskEvent.Type.class);
     
-    public TaskManager(FileStorage fileStorage) {
-        this.fileStorage = fileStorage;
+    static {
+        for (TaskEvent.Type type : TaskEvent.Type.values()) {
+            CHANGES.put(type, METRICS.counter("taskscheduler_task_changes_total",
+                    "Task changes applied, by event type", "type", type.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+    
+    private final Storage storage;
+    
+    // Authoritative in-memory store, in insertion order so listings and storage keep the order tasks were added in
+    private final TaskStore taskStore = new TaskStore();
+    // Lower-cased task name -> task position; claiming a name is the duplicate check,
+    // and the sorted keys serve prefix search. CLAIMED marks a name whose task is being added.
+    private final ConcurrentSkipListMap<String, Long> positionsByName = new ConcurrentSkipListMap<>();
+    private static final Long CLAIMED = -1L;
+    // Pending task positions ordered by due time and priority; guarded by its own monitor
+    private final TaskQueue pendingQueue = new TaskQueue();
+    
+    // Per-task-id locks; a mutation holds its stripe across apply + log append
+    private static final int LOCK_STRIPES = 64;
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    
+    // Full-rewrite mode: a write covers every mutation counted before it started
+    private final Object persistLock = new Object();
+    private final AtomicLong mutationCount = new AtomicLong();
+    private long persistedMutationCount; // guarded by persistLock
+    
+    private final List<Consumer<TaskEvent>> listeners = new CopyOnWriteArrayList<>();
+    
+    // How many recent changes are kept for delta sync
+    private static final int CHANGE_LOG_CAPACITY = 1024;
+    
+    // Bumped on every change. Seeded from the clock so versions keep increasing
+    // across restarts and a client's old version is never mistaken for a current one.
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private final Deque<TaskEvent> recentChanges = new ArrayDeque<>(CHANGE_LOG_CAPACITY);
+    
+    public TaskManager(Storage storage) {
+        this.storage = storage;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        for (Task task : storage.loadTasks()) {
+            index(task);
+        }
+        storage.open(this::snapshot);
+        // Reports on the most recently created manager
+        METRICS.gauge("taskscheduler_tasks", "Tasks in memory", this::getTaskCount);
+        METRICS.gauge("taskscheduler_pending_tasks", "Tasks not yet completed", () -> {
+            synchronized (pendingQueue) {
+                return pendingQueue.size();
+            }
+        });
     }
     
     /**
@@ -22,35 +111,233 @@ public class TaskManager {
      * Equivalent to PHP addTask($task_name)
      */
     public boolean addTask(String taskName) {
+        return addTask(taskName, 0, null, null);
+    }
+    
+    /**
+     * Add a new task with a priority, an optional due time (epoch millis)
+     * and an optional ISO-8601 recurrence such as "P1D"
+     */
+    public boolean addTask(String taskName, int priority, Long dueTime, String recurrence) {
+        ADD_OPERATIONS.increment();
         if (taskName == null || taskName.trim().isEmpty()) {
             return false;
         }
+        if (!isValidRecurrence(recurrence)) {
+            return false;
+        }
         
-        List<Task> tasks = fileStorage.loadTasks();
-        
-        // Check for duplicate tasks
-        boolean taskExists = tasks.stream()
-                .anyMatch(task -> task.getName().equalsIgnoreCase(taskName.trim()));
-        
-        if (taskExists) {
+        // Claim the name first; the claim is the duplicate check
+        if (positionsByName.putIfAbsent(nameKey(taskName), CLAIMED) != null) {
+            DUPLICATES.increment();
             return false; // Duplicate task should not be added
         }
-        
-        // Generate unique ID and add task
         String taskId = UUID.randomUUID().toString();
-        Task newTask = new Task(taskId, taskName.trim(), false);
-        tasks.add(newTask);
         
-        fileStorage.saveTasks(tasks);
+        Task newTask = new Task(taskId, taskName.trim(), false, priority, dueTime, recurrence);
+        long logSequence;
+        ReentrantLock lock = lockFor(taskId);
+        acquire(lock);
+        try {
+            index(newTask);
+            try {
+                logSequence = storage.isIncremental()
+                        ? storage.taskAdded(newTask)
+                        : persist();
+            } catch (RuntimeException e) {
+                unindex(taskId);
+                throw e;
+            }
+            publish(TaskEvent.Type.ADDED, newTask);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(logSequence);
         return true;
     }
     
     /**
-     * Get all tasks from tasks.txt
+     * Apply a list of add, complete and delete operations as one unit.
+     * Holds every lock stripe for the duration and makes one persistence
+     * write (one tasks.txt rewrite, or one log append and fsync); if that
+     * write, or anything else, fails, every operation is rolled back. Invalid
+     * operations (duplicate names, unknown ids) fail individually and do not
+     * stop the rest.
+     *
+     * @return one result per operation, in order
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        BATCH_OPERATIONS.increment();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        List<TaskChange> changes = new ArrayList<>();
+        List<TaskEvent.Type> eventTypes = new ArrayList<>();
+        List<Task> eventTasks = new ArrayList<>();
+        Deque<Runnable> undo = new ArrayDeque<>();
+        
+        long logSequence;
+        lockAll();
+        try {
+            try {
+                logSequence = applyAll(operations, results, changes, eventTypes, eventTasks, undo);
+            } catch (RuntimeException e) {
+                while (!undo.isEmpty()) {
+                    undo.pop().run();
+                }
+                throw e;
+            }
+            for (int i = 0; i < eventTypes.size(); i++) {
+                publish(eventTypes.get(i), eventTasks.get(i));
+            }
+        } finally {
+            unlockAll();
+        }
+        awaitDurable(logSequence);
+        return results;
+    }
+    
+    // Applies the batch in memory and persists it; the caller holds every stripe and undoes on failure
+    private long applyAll(List<BatchOperation> operations, List<BatchResult> results,
+                          List<TaskChange> changes, List<TaskEvent.Type> eventTypes,
+                          List<Task> eventTasks, Deque<Runnable> undo) {
+        for (BatchOperation operation : operations) {
+            String op = operation != null ? operation.getOp() : null;
+            if (BatchOperation.ADD.equals(op)) {
+                String name = operation.getName();
+                if (name == null || name.trim().isEmpty()) {
+                    results.add(BatchResult.failed("Invalid task"));
+                    continue;
+                }
+                String recurrenceError = recurrenceError(operation.getRecurrence());
+                if (recurrenceError != null) {
+                    results.add(BatchResult.failed(recurrenceError));
+                    continue;
+                }
+                // Same index as addTask, so names added earlier in the batch count too
+                if (positionsByName.putIfAbsent(nameKey(name), CLAIMED) != null) {
+                    DUPLICATES.increment();
+                    results.add(BatchResult.failed("Task already exists"));
+                    continue;
+                }
+                String taskId = UUID.randomUUID().toString();
+                Task newTask = new Task(taskId, name.trim(), false,
+                        operation.getPriority(), operation.getDueTime(), operation.getRecurrence());
+                index(newTask);
+                undo.push(() -> unindex(taskId));
+                changes.add(TaskChange.added(newTask));
+                eventTypes.add(TaskEvent.Type.ADDED);
+                eventTasks.add(newTask);
+                results.add(BatchResult.ok(taskId));
+            } else if (BatchOperation.COMPLETE.equals(op)) {
+                Task task = operation.getId() != null ? taskStore.get(operation.getId()) : null;
+                if (task == null) {
+                    results.add(BatchResult.failed("Task not found"));
+                    continue;
+                }
+                Task updated = withCompleted(task, operation.isCompleted());
+                replace(updated);
+                undo.push(() -> replace(task));
+                changes.add(TaskChange.completed(updated));
+                eventTypes.add(TaskEvent.Type.UPDATED);
+                eventTasks.add(updated);
+                results.add(BatchResult.ok(task.getId()));
+            } else if (BatchOperation.DELETE.equals(op)) {
+                String taskId = operation.getId();
+                long position = taskId != null ? taskStore.positionOf(taskId) : -1;
+                Task removed = taskId != null ? unindex(taskId) : null;
+                if (removed == null) {
+                    results.add(BatchResult.failed("Task not found"));
+                    continue;
+                }
+                undo.push(() -> index(removed, position));
+                changes.add(TaskChange.deleted(taskId));
+                eventTypes.add(TaskEvent.Type.DELETED);
+                eventTasks.add(removed);
+                results.add(BatchResult.ok(taskId));
+            } else {
+                results.add(BatchResult.failed("Unknown operation"));
+            }
+        }
+        
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        return storage.isIncremental()
+                ? storage.taskBatch(changes)
+                : persist();
+    }
+    
+    /**
+     * Get all tasks, in the order they were added
      * Equivalent to PHP getAllTasks()
      */
     public List<Task> getAllTasks() {
-        return fileStorage.loadTasks();
+        List<Task> tasks = new ArrayList<>(taskStore.size());
+        for (Task task : taskStore) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+    
+    /**
+     * Weakly consistent view of all tasks in the order they were added, for
+     * serializing without building the whole list. Tasks are materialized
+     * in small chunks as iteration proceeds.
+     */
+    public Iterable<Task> getTaskView() {
+        return taskStore;
+    }
+    
+    public int getTaskCount() {
+        return taskStore.size();
+    }
+    
+    /**
+     * Get one page of tasks
+     *
+     * @param completed  only completed (true) or pending (false) tasks, or null for all
+     * @param namePrefix case-insensitive name prefix; when set, tasks come back in name order
+     * @param cursor     cursor from the previous page, or null for the first page
+     * @param limit      maximum number of tasks to return
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public TaskPage getTaskPage(Boolean completed, String namePrefix, String cursor, int limit) {
+        List<Task> page = new ArrayList<>(Math.min(limit, 1024));
+        boolean hasMore = false;
+        String lastKey = null;
+        
+        if (namePrefix != null && !namePrefix.trim().isEmpty()) {
+            String prefix = nameKey(namePrefix);
+            String from = cursor != null ? decodeCursor(cursor, 'n') : prefix;
+            Map<String, Long> range = positionsByName.subMap(from, cursor == null, prefix + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Long> entry : range.entrySet()) {
+                Task task = taskStore.getAt(entry.getValue());
+                if (task == null || completed != null && task.isCompleted() != completed) {
+                    continue;
+                }
+                if (page.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                page.add(task);
+                lastKey = entry.getKey();
+            }
+            return new TaskPage(page, hasMore ? encodeCursor('n', lastKey) : null);
+        }
+        
+        // The store keeps insertion order and filters on the packed status bits without materializing
+        long after = cursor != null ? Long.parseLong(decodeCursor(cursor, 'p')) : -1;
+        long[] lastPosition = {after};
+        boolean[] more = {false};
+        taskStore.scan(after, completed, (position, task) -> {
+            if (page.size() == limit) {
+                more[0] = true;
+                return false;
+            }
+            page.add(task);
+            lastPosition[0] = position;
+            return true;
+        });
+        return new TaskPage(page, more[0] ? encodeCursor('p', String.valueOf(lastPosition[0])) : null);
     }
     
     /**
@@ -58,27 +345,76 @@ public class TaskManager {
      * Equivalent to PHP markTaskAsCompleted($task_id, $is_completed)
      */
     public boolean markTaskAsCompleted(String taskId, boolean isCompleted) {
+        COMPLETE_OPERATIONS.increment();
         if (taskId == null || taskId.trim().isEmpty()) {
             return false;
         }
         
-        List<Task> tasks = fileStorage.loadTasks();
-        boolean taskFound = false;
-        
-        for (Task task : tasks) {
-            if (task.getId().equals(taskId)) {
-                task.setCompleted(isCompleted);
-                taskFound = true;
-                break;
+        long logSequence;
+        ReentrantLock lock = lockFor(taskId);
+        acquire(lock);
+        try {
+            Task task = taskStore.get(taskId);
+            if (task == null) {
+                return false;
             }
+            
+            Task updated = withCompleted(task, isCompleted);
+            replace(updated);
+            try {
+                logSequence = storage.isIncremental()
+                        ? storage.taskCompleted(updated)
+                        : persist();
+            } catch (RuntimeException e) {
+                replace(task);
+                throw e;
+            }
+            publish(TaskEvent.Type.UPDATED, updated);
+        } finally {
+            lock.unlock();
         }
-        
-        if (taskFound) {
-            fileStorage.saveTasks(tasks);
-            return true;
+        awaitDurable(logSequence);
+        return true;
+    }
+    
+    /**
+     * Change a task's priority, due time and recurrence.
+     * Repositions it in the pending queue in O(log n).
+     */
+    public boolean updateTaskSchedule(String taskId, int priority, Long dueTime, String recurrence) {
+        SCHEDULE_OPERATIONS.increment();
+        if (taskId == null || !isValidRecurrence(recurrence)) {
+            return false;
         }
         
-        return false;
+        long logSequence;
+        ReentrantLock lock = lockFor(taskId);
+        acquire(lock);
+        try {
+            Task task = taskStore.get(taskId);
+            if (task == null) {
+                return false;
+            }
+            
+            Task updated = new Task(task);
+            updated.setPriority(priority);
+            updated.setDueTime(dueTime);
+            updated.setRecurrence(recurrence);
+            replace(updated);
+            try {
+                logSequence = storage.isIncremental()
+                        ? storage.taskScheduled(updated)
+                        : persist();
+            } catch (RuntimeException e) {
+                replace(task);
+                throw e;
+            }
+            publish(TaskEvent.Type.UPDATED, updated);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(logSequence);
+        return true;
     }
     
     /**
@@ -86,38 +422,352 @@ public class TaskManager {
      * Equivalent to PHP deleteTask($task_id)
      */
     public boolean deleteTask(String taskId) {
+        DELETE_OPERATIONS.increment();
         if (taskId == null || taskId.trim().isEmpty()) {
             return false;
         }
         
-        List<Task> tasks = fileStorage.loadTasks();
-        boolean taskRemoved = tasks.removeIf(task -> task.getId().equals(taskId));
-        
-        if (taskRemoved) {
-            fileStorage.saveTasks(tasks);
-            return true;
+        long logSequence;
+        ReentrantLock lock = lockFor(taskId);
+        acquire(lock);
+        try {
+            long position = taskStore.positionOf(taskId);
+            Task removed = unindex(taskId);
+            if (removed == null) {
+                return false;
+            }
+            
+            try {
+                logSequence = storage.isIncremental()
+                        ? storage.taskDeleted(taskId)
+                        : persist();
+            } catch (RuntimeException e) {
+                index(removed, position);
+                throw e;
+            }
+            publish(TaskEvent.Type.DELETED, removed);
+        } finally {
+            lock.unlock();
         }
-        
-        return false;
+        awaitDurable(logSequence);
+        return true;
     }
     
     /**
-     * Get all pending (incomplete) tasks
+     * Get all pending (incomplete) tasks, soonest due and highest priority first
      * Used for email reminders
      */
     public List<Task> getPendingTasks() {
-        return getAllTasks().stream()
-                .filter(task -> !task.isCompleted())
-                .collect(Collectors.toList());
+        return getPendingTasks(Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Get the first {@code limit} pending tasks in schedule order without scanning the rest
+     */
+    public List<Task> getPendingTasks(int limit) {
+        long[] positions;
+        synchronized (pendingQueue) {
+            positions = pendingQueue.top(limit);
+        }
+        return materialize(positions);
+    }
+    
+    /**
+     * Get pending tasks that are due at or before {@code now}, at most {@code limit}
+     */
+    public List<Task> getDueTasks(long now, int limit) {
+        long[] positions;
+        synchronized (pendingQueue) {
+            positions = pendingQueue.due(now, limit);
+        }
+        return materialize(positions);
+    }
+    
+    /**
+     * Get the pending task that is due next, or null if there is none
+     */
+    public Task getNextDueTask() {
+        long position;
+        synchronized (pendingQueue) {
+            position = pendingQueue.peek();
+        }
+        return position >= 0 ? taskStore.getAt(position) : null;
+    }
+    
+    /**
+     * Current version; changes whenever any task is added, updated or deleted
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    /**
+     * Changes made after the given version, oldest first.
+     * Returns null if that version is older than the retained history (or unknown),
+     * in which case the caller has to reload the full list.
+     */
+    public List<TaskEvent> getChangesSince(long sinceVersion) {
+        synchronized (recentChanges) {
+            long current = version.get();
+            if (sinceVersion > current) {
+                return null;
+            }
+            List<TaskEvent> changes = new ArrayList<>();
+            if (sinceVersion == current) {
+                return changes;
+            }
+            TaskEvent oldest = recentChanges.peekFirst();
+            if (oldest == null || oldest.getVersion() > sinceVersion + 1) {
+                return null;
+            }
+            for (TaskEvent event : recentChanges) {
+                if (event.getVersion() > sinceVersion) {
+                    changes.add(event);
+                }
+            }
+            return changes;
+        }
+    }
+    
+    /**
+     * Register a listener for task changes. Listeners run on the mutating thread,
+     * strictly in version order, and must not block.
+     */
+    public void addTaskListener(Consumer<TaskEvent> listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeTaskListener(Consumer<TaskEvent> listener) {
+        listeners.remove(listener);
     }
     
     /**
      * Get task by ID
      */
     public Task getTaskById(String taskId) {
-        return getAllTasks().stream()
-                .filter(task -> task.getId().equals(taskId))
-                .findFirst()
-                .orElse(null);
+        if (taskId == null) {
+            return null;
+        }
+        return taskStore.get(taskId);
+    }
+    
+    // Index maintenance; callers hold the task's stripe lock (or run in the constructor)
+    private void index(Task task) {
+        long position = taskStore.add(task);
+        positionsByName.put(nameKey(task.getName()), position);
+        requeue(task, position);
+    }
+    
+    // Put a removed task back where it was
+    private void index(Task task, long position) {
+        taskStore.insert(task, position);
+        positionsByName.put(nameKey(task.getName()), position);
+        requeue(task, position);
+    }
+    
+    // Overwrite the schedule and status of an indexed task (same id and name)
+    private void replace(Task updated) {
+        long position = taskStore.update(updated);
+        if (position >= 0) {
+            requeue(updated, position);
+        }
+    }
+    
+    private Task unindex(String taskId) {
+        long position = taskStore.positionOf(taskId);
+        Task task = taskStore.remove(taskId);
+        if (task == null) {
+            return null;
+        }
+        synchronized (pendingQueue) {
+            pendingQueue.remove(position);
+        }
+        // Released last so a re-add of the same name only succeeds once the old task is gone
+        positionsByName.remove(nameKey(task.getName()), position);
+        return task;
+    }
+    
+    private ReentrantLock lockFor(String taskId) {
+        return stripes[(taskId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+    
+    // Time spent waiting is traced; an uncontended lock is not worth a span
+    private static void acquire(ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        Trace.run("task.lock_wait", lock::lock);
+    }
+    
+    // Always in stripe order, so batches cannot deadlock with each other
+    private void lockAll() {
+        Trace.run("task.lock_wait", () -> {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+            }
+        });
+    }
+    
+    private void unlockAll() {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+    
+    /**
+     * Flush outstanding storage work (e.g. fold the write-ahead log into tasks.txt) and release it
+     */
+    public void close() {
+        storage.close(this::snapshot);
+    }
+    
+    // Versions are assigned and listeners called under one short lock, so every
+    // listener sees changes in version order even with parallel writers
+    private void publish(TaskEvent.Type type, Task task) {
+        CHANGES.get(type).increment();
+        synchronized (recentChanges) {
+            TaskEvent event = new TaskEvent(version.incrementAndGet(), type, new Task(task));
+            if (recentChanges.size() == CHANGE_LOG_CAPACITY) {
+                recentChanges.removeFirst();
+            }
+            recentChanges.addLast(event);
+            for (Consumer<TaskEvent> listener : listeners) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in task listener: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    // New instance with the completed flag set; a recurring task instead stays pending and comes due again
+    private static Task withCompleted(Task task, boolean isCompleted) {
+        Task updated = new Task(task);
+        if (isCompleted && task.getRecurrence() != null) {
+            updated.setCompleted(false);
+            updated.setDueTime(nextOccurrence(task, System.currentTimeMillis()));
+        } else {
+            updated.setCompleted(isCompleted);
+        }
+        return updated;
+    }
+    
+    // Keep the pending queue in step with a task's completed flag and schedule
+    private void requeue(Task task, long position) {
+        synchronized (pendingQueue) {
+            if (task.isCompleted()) {
+                pendingQueue.remove(position);
+            } else {
+                pendingQueue.offer(position, task.getDueTime(), task.getPriority());
+            }
+        }
+    }
+    
+    private static String encodeCursor(char kind, String key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((kind + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String decodeCursor(String cursor, char expectedKind) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (decoded.length() < 2 || decoded.charAt(0) != expectedKind || decoded.charAt(1) != ':') {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String key = decoded.substring(2);
+        if (expectedKind == 'p') {
+            Long.parseLong(key); // NumberFormatException is an IllegalArgumentException
+        }
+        return key;
+    }
+    
+    // First occurrence of a recurring task strictly after now
+    private static long nextOccurrence(Task task, long now) {
+        long period = Math.max(1, Duration.parse(task.getRecurrence()).toMillis());
+        Long dueTime = task.getDueTime();
+        if (dueTime == null || dueTime > now) {
+            return (dueTime != null ? dueTime : now) + period;
+        }
+        long missed = (now - dueTime) / period + 1;
+        return dueTime + missed * period;
+    }
+    
+    private static boolean isValidRecurrence(String recurrence) {
+        return recurrenceError(recurrence) == null;
+    }
+    
+    /**
+     * Why a recurrence would be rejected by addTask and updateTaskSchedule, or null if it is valid
+     */
+    public static String recurrenceError(String recurrence) {
+        if (recurrence == null) {
+            return null;
+        }
+        Duration period;
+        try {
+            period = Duration.parse(recurrence);
+        } catch (DateTimeParseException e) {
+            return "Recurrence must be an ISO-8601 duration such as P1D or PT12H";
+        }
+        if (period.isNegative() || period.isZero()) {
+            return "Recurrence must be a positive duration";
+        }
+        return null;
+    }
+    
+    // A task completed or deleted since its position was read is skipped
+    private List<Task> materialize(long[] positions) {
+        List<Task> result = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            Task task = taskStore.getAt(position);
+            if (task != null && !task.isCompleted()) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+    
+    private List<Task> snapshot() {
+        return getAllTasks();
+    }
+    
+    /**
+     * Full rewrite of the stored tasks; returns 0 as there is no change record to wait for.
+     * Writes are serialized and each takes its snapshot inside the lock, so an
+     * older snapshot can never overwrite a newer one. A writer whose change was
+     * already covered by someone else's write skips its own.
+     */
+    private long persist() {
+        long target = mutationCount.incrementAndGet();
+        // Time not spent in the snapshot or the save was spent waiting for another writer
+        Trace.run("task.persist", () -> persistThrough(target));
+        return 0;
+    }
+    
+    private void persistThrough(long target) {
+        synchronized (persistLock) {
+            if (persistedMutationCount >= target) {
+                return;
+            }
+            long covered = mutationCount.get();
+            List<Task> tasks = Trace.call("task.snapshot", this::snapshot);
+            storage.saveTasks(tasks);
+            persistedMutationCount = covered;
+        }
+    }
+    
+    private void awaitDurable(long logSequence) {
+        if (logSequence > 0) {
+            storage.awaitDurable(logSequence);
+        }
+    }
+    
+    private static Counter operationCounter(String operation) {
+        return METRICS.counter("taskscheduler_task_operations_total",
+                "Task operations requested, whether or not they changed anything", "operation", operation);
+    }
+    
+    private static String nameKey(String taskName) {
+        return taskName.trim().toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
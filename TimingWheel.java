@@ -0,0 +1,286 @@
+package com.taskscheduler.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed hierarchical timing wheel
+ *
+ * Level 0 has one bucket per tick; each higher level covers wheelSize times
+ * the span of the level below and cascades its buckets down as time reaches
+ * them. Schedule and cancel are O(1): they only enqueue, and the single tick
+ * thread owns the buckets. Expired callbacks are handed to the executor so a
+ * slow callback never delays the next tick.
+ */
+public class TimingWheel {
+    // Upper bound on newly scheduled timeouts moved into the wheel per tick
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+    
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+    
+    private final long tickNanos;
+    private final int wheelSize;
+    private final int levels;
+    private final Executor callbackExecutor;
+    private final Bucket[][] wheels;
+    // Ticks covered by one bucket at each level
+    private final long[] spans;
+    
+    private final Queue<Timeout> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> pendingCancels = new ConcurrentLinkedQueue<>();
+    
+    private volatile Thread tickThread;
+    private volatile boolean running;
+    private volatile long startNanos;
+    private long currentTick; // owned by the tick thread
+    
+    public TimingWheel(long tickMillis, int wheelSize, int levels, Executor callbackExecutor) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.callbackExecutor = callbackExecutor;
+        this.spans = new long[levels];
+        spans[0] = 1;
+        for (int level = 1; level < levels; level++) {
+            if (spans[level - 1] > Long.MAX_VALUE / wheelSize / wheelSize) {
+                throw new IllegalArgumentException("Too many timing wheel levels for wheel size " + wheelSize);
+            }
+            spans[level] = spans[level - 1] * wheelSize;
+        }
+        this.wheels = new Bucket[levels][wheelSize];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < wheelSize; slot++) {
+                wheels[level][slot] = new Bucket();
+            }
+        }
+        this.startNanos = System.nanoTime();
+    }
+    
+    /**
+     * Start ticking. After stop(), ticking resumes from the tick it stopped at, so timers
+     * still in the wheel fire late by the time it was stopped; new timers are unaffected.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        // Re-anchor so the current tick is now; the old tick thread has exited, so reading it is safe
+        startNanos = System.nanoTime() - currentTick * tickNanos;
+        tickThread = new Thread(this::run, "timing-wheel");
+        tickThread.setDaemon(true);
+        tickThread.start();
+    }
+    
+    public synchronized void stop() {
+        running = false;
+        Thread thread = tickThread;
+        tickThread = null;
+        if (thread != null) {
+            thread.interrupt();
+            if (thread != Thread.currentThread()) {
+                // A restart must not race the old thread for the wheel
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run the callback once the wall-clock deadline (epoch millis) has passed.
+     * Deadlines in the past fire on the next tick.
+     */
+    public Timeout schedule(long deadlineMillis, Runnable callback) {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadlineMillis - System.currentTimeMillis()));
+        long elapsed = System.nanoTime() - startNanos + delayNanos;
+        Timeout timeout = new Timeout(this, Math.max(0, (elapsed + tickNanos - 1) / tickNanos), callback);
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+    
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (currentTick + 1) * tickNanos;
+            long sleepNanos = deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            currentTick++;
+            removeCancelled();
+            cascade();
+            transferPendingAdds();
+            expire(wheels[0][(int) (currentTick % wheelSize)]);
+        }
+    }
+    
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.unlink(timeout);
+            }
+        }
+    }
+    
+    // Move buckets of higher levels down once time reaches their span, top level first
+    private void cascade() {
+        for (int level = levels - 1; level >= 1; level--) {
+            long span = spans[level];
+            if (currentTick % span == 0) {
+                Bucket bucket = wheels[level][(int) ((currentTick / span) % wheelSize)];
+                Timeout timeout = bucket.clear();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    timeout.prev = null;
+                    timeout.bucket = null;
+                    if (timeout.state.get() == STATE_PENDING) {
+                        place(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+    }
+    
+    private void transferPendingAdds() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingAdds.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == STATE_PENDING) {
+                place(timeout);
+            }
+        }
+    }
+    
+    private void place(Timeout timeout) {
+        long deadlineTick = Math.max(timeout.deadlineTick, currentTick);
+        long remaining = deadlineTick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && remaining >= spans[level + 1]) {
+            level++;
+        }
+        wheels[level][(int) ((deadlineTick / spans[level]) % wheelSize)].add(timeout);
+    }
+    
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.clear();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            if (timeout.deadlineTick > currentTick) {
+                // Came around early from the top level; wait for its real slot
+                place(timeout);
+            } else if (timeout.state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                try {
+                    callbackExecutor.execute(timeout.callback);
+                } catch (RejectedExecutionException e) {
+                    System.err.println("Timing wheel callback rejected: " + e.getMessage());
+                }
+            }
+            timeout = next;
+        }
+    }
+    
+    /**
+     * Handle to a scheduled callback
+     */
+    public static final class Timeout {
+        private final TimingWheel wheel;
+        private final long deadlineTick;
+        private final Runnable callback;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        
+        // Bucket links, owned by the tick thread
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+        
+        private Timeout(TimingWheel wheel, long deadlineTick, Runnable callback) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.callback = callback;
+        }
+        
+        /**
+         * Cancel the callback if it has not fired yet. O(1)
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                return false;
+            }
+            wheel.pendingCancels.add(this);
+            return true;
+        }
+        
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+        
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+    }
+    
+    // Doubly linked list of timeouts; only touched by the tick thread
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+        
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+        
+        private void unlink(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+        
+        private Timeout clear() {
+            Timeout first = head;
+            head = tail = null;
+            return first;
+        }
+    }
+}
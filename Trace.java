@@ -0,0 +1,275 @@
+package com.taskscheduler.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-stage timings of one request, for finding where a slow request spent its time
+ *
+ * A trace is bound to the thread handling the request. Code anywhere below it
+ * times a stage with {@code Trace.run("storage.save_tasks", () -> ...)} or
+ * {@code Trace.call(...)} for a result; with no trace bound, the span is a shared
+ * no-op, so untraced callers (the CronTask process, startup, background threads)
+ * pay one ThreadLocal read.
+ *
+ * A span opened while another is open on the same thread is its child. Work
+ * handed to another thread is traced by wrapping it with {@link #wrap(Runnable)}.
+ */
+public final class Trace {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final Span NO_SPAN = new Span(null, null, null, 0);
+    
+    private final String id;
+    private final String name;
+    private final long startMillis;
+    private final long startNanos;
+    private final List<Span> spans = new ArrayList<>(); // guarded by this, in start order
+    private volatile long endNanos;
+    private volatile int status;
+    
+    private Trace(String id, String name) {
+        this.id = id;
+        this.name = name;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+    
+    /**
+     * Start a trace and bind it to the current thread until {@link #end()}
+     *
+     * @param id   request id, reported with every span
+     * @param name what is being traced, e.g. "PUT /api/tasks"
+     */
+    public static Trace begin(String id, String name) {
+        Trace trace = new Trace(id, name);
+        CURRENT.set(new Scope(trace, null));
+        return trace;
+    }
+    
+    /**
+     * The trace bound to this thread, or null
+     */
+    public static Trace current() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.trace : null;
+    }
+    
+    /**
+     * Id of the trace bound to this thread, or null; for tagging log lines
+     */
+    public static String currentId() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.trace.id : null;
+    }
+    
+    /**
+     * Time a stage of the current trace until the span is closed
+     */
+    public static Span span(String stage) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return NO_SPAN;
+        }
+        Span span = new Span(scope.trace, stage, scope.open, System.nanoTime());
+        scope.open = span;
+        synchronized (scope.trace) {
+            scope.trace.spans.add(span);
+        }
+        return span;
+    }
+    
+    /**
+     * Time work as a stage of the current trace
+     */
+    public static <E extends Exception> void run(String stage, Action<E> work) throws E {
+        Span span = span(stage);
+        try {
+            work.run();
+        } finally {
+            span.close();
+        }
+    }
+    
+    /**
+     * Time work as a stage of the current trace and return its result
+     */
+    public static <T, E extends Exception> T call(String stage, Call<T, E> work) throws E {
+        Span span = span(stage);
+        try {
+            return work.call();
+        } finally {
+            span.close();
+        }
+    }
+    
+    /**
+     * Run the task under the current trace on whichever thread runs it, its spans
+     * nested under the span open here. Returns the task unchanged if there is no trace.
+     */
+    public static Runnable wrap(Runnable task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        Trace trace = scope.trace;
+        Span parent = scope.open;
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(new Scope(trace, parent));
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Stop the clock and unbind the trace from this thread
+     */
+    public void end() {
+        endNanos = System.nanoTime();
+        Scope scope = CURRENT.get();
+        if (scope != null && scope.trace == this) {
+            CURRENT.remove();
+        }
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Wall-clock start, epoch milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+    
+    /**
+     * Time from begin to end, or to now if the trace has not ended
+     */
+    public long getDurationNanos() {
+        long end = endNanos;
+        return (end != 0 ? end : System.nanoTime()) - startNanos;
+    }
+    
+    /**
+     * Outcome of the traced work, such as the HTTP status; 0 if not set
+     */
+    public int getStatus() {
+        return status;
+    }
+    
+    public void setStatus(int status) {
+        this.status = status;
+    }
+    
+    /**
+     * Spans recorded so far, in the order they started
+     */
+    public List<Span> getSpans() {
+        synchronized (this) {
+            return new ArrayList<>(spans);
+        }
+    }
+    
+    /**
+     * One timed stage. Closing it more than once has no further effect.
+     */
+    public static final class Span implements AutoCloseable {
+        private final Trace trace;
+        private final String stage;
+        private final Span parent;
+        private final int depth;
+        private final long startNanos;
+        private final String thread;
+        private volatile long endNanos;
+        
+        private Span(Trace trace, String stage, Span parent, long startNanos) {
+            this.trace = trace;
+            this.stage = stage;
+            this.parent = parent;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+            this.startNanos = startNanos;
+            this.thread = trace != null ? Thread.currentThread().getName() : null;
+        }
+        
+        @Override
+        public void close() {
+            if (trace == null || endNanos != 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            Scope scope = CURRENT.get();
+            if (scope != null && scope.open == this) {
+                scope.open = parent;
+            }
+        }
+        
+        public String getStage() {
+            return stage;
+        }
+        
+        /**
+         * Nesting level; 0 for spans opened directly under the trace
+         */
+        public int getDepth() {
+            return depth;
+        }
+        
+        /**
+         * Start relative to the start of the trace
+         */
+        public long getOffsetNanos() {
+            return startNanos - trace.startNanos;
+        }
+        
+        /**
+         * Time the stage took, or -1 if the span was never closed
+         */
+        public long getDurationNanos() {
+            long end = endNanos;
+            return end != 0 ? end - startNanos : -1;
+        }
+        
+        public String getThread() {
+            return thread;
+        }
+    }
+    
+    /**
+     * Work timed by {@link #run}, throwing E
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+    
+    /**
+     * Work timed by {@link #call}, returning T or throwing E
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+    
+    // What is bound to one thread: the trace and its innermost open span there
+    private static final class Scope {
+        private final Trace trace;
+        private Span open;
+        
+        private Scope(Trace trace, Span open) {
+            this.trace = trace;
+            this.open = open;
+        }
+    }
+}
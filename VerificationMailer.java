@@ -0,0 +1,57 @@
+package com.taskscheduler.service;
+
+import javax.mail.Message;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Sends the verification link for a new subscription
+ *
+ * The link carries the address Base64- and URL-encoded, the same way as the
+ * reminder's unsubscribe link, plus the code issued by {@link SubscriberRegistry}.
+ */
+public class VerificationMailer {
+    public static final String SUBJECT = "Verify subscription to Task Planner";
+    
+    private final ReminderDelivery delivery;
+    private final String fromAddress;
+    private final String verifyUrl;
+    
+    /**
+     * @param verifyUrl the /verify endpoint, e.g. "http://localhost:8080/verify"
+     */
+    public VerificationMailer(ReminderDelivery delivery, String fromAddress, String verifyUrl) {
+        this.delivery = delivery;
+        this.fromAddress = fromAddress;
+        this.verifyUrl = verifyUrl;
+    }
+    
+    /**
+     * Send the link and wait for the outcome
+     *
+     * @return false if the message could not be delivered
+     */
+    public boolean send(String email, String code) {
+        String encoded = URLEncoder.encode(
+                Base64.getEncoder().encodeToString(email.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        String link = verifyUrl + "?email=" + encoded + "&code=" + URLEncoder.encode(code, StandardCharsets.UTF_8);
+        String body = "<html><body>"
+                + "<h2>Verify your subscription</h2>"
+                + "<p>Confirm that you want to receive task reminders:</p>"
+                + "<p><a href=\"" + link + "\">Verify subscription</a></p>"
+                + "</body></html>";
+        ReminderDelivery.Report report = delivery.deliver(List.of(email), (session, recipient) -> {
+            MimeMessage message = new MimeMessage(session);
+            message.setFrom(new InternetAddress(fromAddress));
+            message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+            message.setSubject(SUBJECT, "UTF-8");
+            message.setContent(body, "text/html; charset=UTF-8");
+            return message;
+        });
+        return !report.getSent().isEmpty();
+    }
+}
@@ -1,103 +1,378 @@
 package com.taskscheduler.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import com.taskscheduler.model.BatchOperation;
+import com.taskscheduler.model.BatchResult;
 import com.taskscheduler.model.Task;
-import com.taskscheduler.service.EmailService;
+import com.taskscheduler.model.TaskEvent;
+import com.taskscheduler.model.TaskPage;
+import com.taskscheduler.service.Counter;
+import com.taskscheduler.service.LatencyHistogram;
+import com.taskscheduler.service.MetricsRegistry;
+import com.taskscheduler.service.SubscriberRegistry;
 import com.taskscheduler.service.TaskManager;
+import com.taskscheduler.service.Trace;
+import com.taskscheduler.service.VerificationMailer;
 
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * HTTP Server for handling web interface requests
  */
 public class WebServer {
+    /**
+     * How request handlers are run
+     */
+    public enum ExecutorMode {
+        // Every request on HttpServer's single dispatcher thread (original behaviour)
+        DISPATCHER_THREAD,
+        // Fixed pool of platform threads with a bounded request queue
+        PLATFORM_POOL,
+        // One virtual thread per request; needs Java 21, falls back to PLATFORM_POOL
+        VIRTUAL_THREADS
+    }
+    
+    private static final int DEFAULT_WORKER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final int DEFAULT_QUEUE_LIMIT = 512;
+    
+    // Task lists longer than this are streamed with chunked transfer encoding
+    private static final int STREAMING_THRESHOLD = 512;
+    // Page size bounds for GET /api/tasks?limit=...
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Operations accepted in one POST /api/tasks/batch
+    private static final int MAX_BATCH_SIZE = 10_000;
+    // Response buffers kept for reuse, and the largest one worth keeping
+    private static final int MAX_POOLED_BUFFERS = 32;
+    private static final int MAX_POOLED_BUFFER_BYTES = 256 * 1024;
+    // Request methods given their own metrics label; anything else is counted as OTHER
+    private static final List<String> METRIC_METHODS = List.of("GET", "HEAD", "POST", "PUT", "DELETE", "OPTIONS", "PATCH");
+    // X-Request-Id values accepted from clients; anything else is replaced with a generated id
+    private static final Pattern REQUEST_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+    // Generated ids are <per-process prefix>-<sequence>, both base 36
+    private static final String REQUEST_ID_PREFIX = Integer.toString(
+            ThreadLocalRandom.current().nextInt(36 * 36 * 36, 36 * 36 * 36 * 36), 36);
+    private static final AtomicLong REQUEST_SEQUENCE = new AtomicLong();
+    
+    static {
+        // HttpServer writes headers and body separately; with Nagle on, the body then waits
+        // out the client's delayed ACK (~40 ms per keep-alive request). Read once, at first use.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
     private final TaskManager taskManager;
-    private final EmailService emailService;
+    private final SubscriberRegistry subscriberRegistry;
+    private final VerificationMailer verificationMailer;
     private final ObjectMapper objectMapper;
+    private final ObjectWriter taskWriter;
+    private final BlockingQueue<ResponseBuffer> responseBuffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private final List<Consumer<Trace>> traceSinks = new CopyOnWriteArrayList<>();
+    private final StaticAssets staticAssets = new StaticAssets(Paths.get("src/main/resources/static"));
+    private boolean devMode;
     private HttpServer server;
+    private SheddingExecutor executor;
+    private TaskEventStream eventStream;
     
-    public WebServer(TaskManager taskManager, EmailService emailService) {
+    public WebServer(TaskManager taskManager, SubscriberRegistry subscriberRegistry,
+                     VerificationMailer verificationMailer) {
         this.taskManager = taskManager;
-        this.emailService = emailService;
+        this.subscriberRegistry = subscriberRegistry;
+        this.verificationMailer = verificationMailer;
         this.objectMapper = new ObjectMapper();
-}
+        // One flush at the end of the list, not one per task
+        this.taskWriter = objectMapper.writerFor(Task.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+    
+    /**
+     * Receive every finished request trace, on the thread that handled the request.
+     * Requests are only traced while at least one sink is registered.
+     */
+    public void addTraceSink(Consumer<Trace> sink) {
+        traceSinks.add(sink);
+    }
+    
+    /**
+     * Pick up edits to the static files without a restart; call before start()
+     */
+    public void setDevMode(boolean devMode) {
+        this.devMode = devMode;
+    }
     
     public void start(int port) throws IOException {
-        server = HttpServer.create(new InetSocketAddress(port), 0);
+        start(port, ExecutorMode.DISPATCHER_THREAD, DEFAULT_WORKER_THREADS, DEFAULT_QUEUE_LIMIT);
+    }
+    
+    public void start(int port, ExecutorMode mode) throws IOException {
+        start(port, mode, DEFAULT_WORKER_THREADS, DEFAULT_QUEUE_LIMIT);
+    }
+    
+    /**
+     * @param workerThreads pool size for PLATFORM_POOL; ignored otherwise
+     * @param queueLimit    requests allowed to wait for a worker (PLATFORM_POOL) or in flight
+     *                      (VIRTUAL_THREADS); requests beyond it get 503. For DISPATCHER_THREAD
+     *                      it is the TCP accept backlog: the dispatcher handles one exchange at
+     *                      a time, so nothing queues inside the server to shed, and connections
+     *                      beyond the backlog wait or are refused by the OS instead of getting 503
+     */
+    public void start(int port, ExecutorMode mode, int workerThreads, int queueLimit) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), mode == ExecutorMode.DISPATCHER_THREAD ? queueLimit : 0);
         
         // Static file serving
-        server.createContext("/", new StaticFileHandler());
+        if (devMode) {
+            staticAssets.watch();
+        }
+        createContext("/", new StaticFileHandler());
         
         // API endpoints
-        server.createContext("/api/tasks", new TaskHandler());
-        server.createContext("/api/subscribe", new SubscribeHandler());
-        server.createContext("/verify", new VerifyHandler());  
-        server.createContext("/unsubscribe", new UnsubscribeHandler());
+        createContext("/api/tasks", new TaskHandler());
+        createContext("/api/tasks/changes", new ChangesHandler());
+        createContext("/api/tasks/stream", new StreamHandler());
+        createContext("/api/tasks/batch", new BatchHandler());
+        createContext("/api/subscribe", new SubscribeHandler());
+        createContext("/verify", new VerifyHandler());
+        createContext("/unsubscribe", new UnsubscribeHandler());
         
-        server.setExecutor(null);
+        // Not timed or shed, so it can still be scraped when the server is overloaded
+        server.createContext("/metrics", new MetricsHandler());
+        metrics.registerJvmMetrics();
+        
+        // SSE writers hold a thread per open stream; virtual threads when available
+        ExecutorService streamWriters = newVirtualThreadExecutor();
+        if (streamWriters == null) {
+            streamWriters = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "sse-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        eventStream = new TaskEventStream(taskManager, objectMapper, streamWriters);
+        taskManager.addTaskListener(eventStream);
+        
+        executor = createExecutor(mode, workerThreads, queueLimit);
+        SheddingExecutor requestExecutor = executor;
+        metrics.gauge("taskscheduler_http_requests_pending", "Requests running or queued on the request executor",
+                () -> requestExecutor != null ? requestExecutor.getPendingCount() : 0);
+        server.setExecutor(executor);
         server.start();
         
-        System.out.println("Task Scheduler server started on http://localhost:" + port);
+        System.out.println("Task Scheduler server started on http://localhost:" + port + " (" + mode + ")");
     }
     
     public void stop() {
+        if (eventStream != null) {
+            taskManager.removeTaskListener(eventStream);
+            eventStream.close();
+            eventStream = null;
+        }
         if (server != null) {
             server.stop(0);
         }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        staticAssets.close();
+    }
+    
+    private void createContext(String path, HttpHandler handler) {
+        List<Filter> filters = server.createContext(path, handler).getFilters();
+        // Tracing and metrics first, so requests refused by load shedding are counted too
+        filters.add(new TracingFilter());
+        filters.add(new MetricsFilter(path));
+        filters.add(new LoadSheddingFilter());
+    }
+    
+    private static SheddingExecutor createExecutor(ExecutorMode mode, int workerThreads, int queueLimit) {
+        switch (mode) {
+            case VIRTUAL_THREADS:
+                ExecutorService virtualThreads = newVirtualThreadExecutor();
+                if (virtualThreads != null) {
+                    return new SheddingExecutor(virtualThreads, queueLimit);
+                }
+                System.err.println("Virtual threads need Java 21; using a platform thread pool instead");
+                return newPlatformPool(workerThreads, queueLimit);
+            case PLATFORM_POOL:
+                return newPlatformPool(workerThreads, queueLimit);
+            default:
+                return null;
+        }
+    }
+    
+    private static SheddingExecutor newPlatformPool(int workerThreads, int queueLimit) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workerThreads, workerThreads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueLimit)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        return new SheddingExecutor(pool, workerThreads + queueLimit);
+    }
+    
+    // Looked up reflectively so the project still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    // Answers 503 for exchanges the executor marked as over its limit
+    private class LoadSheddingFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            if (SheddingExecutor.isShedding()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendResponse(exchange, 503, "{\"success\": false, \"error\": \"Server busy\"}");
+                return;
+            }
+            chain.doFilter(exchange);
+        }
+        
+        @Override
+        public String description() {
+            return "Rejects requests over the executor's queue limit";
+        }
     }
     
-    // Static file handler for serving HTML, CSS, JS
+    // Tags the request with an id (the client's X-Request-Id, or a new one) and traces it for the sinks
+    private class TracingFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            String requestId = exchange.getRequestHeaders().getFirst("X-Request-Id");
+            if (requestId == null || !REQUEST_ID.matcher(requestId).matches()) {
+                requestId = REQUEST_ID_PREFIX + "-" + Long.toString(REQUEST_SEQUENCE.incrementAndGet(), 36);
+            }
+            exchange.getResponseHeaders().set("X-Request-Id", requestId);
+            if (traceSinks.isEmpty()) {
+                chain.doFilter(exchange);
+                return;
+            }
+            
+            Trace trace = Trace.begin(requestId, exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                trace.setStatus(exchange.getResponseCode());
+                trace.end();
+                for (Consumer<Trace> sink : traceSinks) {
+                    try {
+                        sink.accept(trace);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error recording trace " + requestId + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "Assigns request ids and records request traces";
+        }
+    }
+    
+    // Records latency per endpoint and method, and responses per status code
+    private class MetricsFilter extends Filter {
+        private final String endpoint;
+        private final Map<String, LatencyHistogram> latencyByMethod = new ConcurrentHashMap<>();
+        private final Map<Integer, Counter> responsesByStatus = new ConcurrentHashMap<>();
+        
+        MetricsFilter(String endpoint) {
+            this.endpoint = endpoint;
+        }
+        
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long start = System.nanoTime();
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                String method = METRIC_METHODS.contains(exchange.getRequestMethod()) ? exchange.getRequestMethod() : "OTHER";
+                latencyByMethod.computeIfAbsent(method, key -> metrics.histogram("taskscheduler_http_request_seconds",
+                        "Time to handle a request, from the handler starting until it returns",
+                        "endpoint", endpoint, "method", key)).recordSince(start);
+                // -1: the handler failed before sending a response
+                responsesByStatus.computeIfAbsent(exchange.getResponseCode(), code -> metrics.counter(
+                        "taskscheduler_http_responses_total", "Responses by status code",
+                        "endpoint", endpoint, "status", code < 0 ? "none" : String.valueOf(code))).increment();
+            }
+        }
+        
+        @Override
+        public String description() {
+            return "Records request latency and response codes";
+        }
+    }
+    
+    // Prometheus scrape endpoint: GET /metrics
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "Method not allowed");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            sendResponse(exchange, 200, metrics.toPrometheusText());
+        }
+    }
+    
+    // Static file handler for serving HTML, CSS, JS from the in-memory cache
     private class StaticFileHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                sendResponse(exchange, 405, "Method not allowed");
+                return;
+            }
+            
             String path = exchange.getRequestURI().getPath();
             
             if (path.equals("/")) {
                 path = "/index.html";
             }
             
-            String filePath = "src/main/resources/static" + path;
-            File file = new File(filePath);
-            
-            if (file.exists() && !file.isDirectory()) {
-                String contentType = getContentType(path);
-                exchange.getResponseHeaders().set("Content-Type", contentType);
-                
-                byte[] fileContent = Files.readAllBytes(file.toPath());
-                exchange.sendResponseHeaders(200, fileContent.length);
-                
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(fileContent);
-                }
-            } else {
-                // Return 404
-                String response = "404 Not Found";
-                exchange.sendResponseHeaders(404, response.length());
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(response.getBytes());
-                }
+            if (!staticAssets.serve(exchange, path)) {
+                sendResponse(exchange, 404, "404 Not Found");
             }
         }
-        
-        private String getContentType(String path) {
-            if (path.endsWith(".html")) return "text/html";
-            if (path.endsWith(".css")) return "text/css";
-            if (path.endsWith(".js")) return "application/javascript";
-            if (path.endsWith(".json")) return "application/json";
-            return "text/plain";
-        }
     }
     
     // Task API handler
@@ -125,11 +400,57 @@ public class WebServer {
         }
         
         private void handleGetTasks(HttpExchange exchange) throws IOException {
-            List<Task> tasks = taskManager.getAllTasks();
-            String json = objectMapper.writeValueAsString(tasks);
+            Map<String, String> params = parseQueryString(exchange.getRequestURI().getQuery());
+            
+            // Read the version before the tasks: a change racing with the response
+            // then only makes the ETag stale, never newer than the body
+            long version = taskManager.getVersion();
+            String etag = "\"" + version + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("X-Task-Version", String.valueOf(version));
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (etagMatches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
             
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            sendResponse(exchange, 200, json);
+            
+            if (!params.containsKey("limit") && !params.containsKey("cursor")
+                    && !params.containsKey("status") && !params.containsKey("prefix")) {
+                sendTasks(exchange, taskManager.getTaskCount(), taskManager.getTaskView());
+                return;
+            }
+            
+            // Paged listing; the cursor for the next page is returned in X-Next-Cursor
+            Boolean completed = null;
+            String status = params.get("status");
+            if ("pending".equals(status)) {
+                completed = false;
+            } else if ("completed".equals(status)) {
+                completed = true;
+            } else if (status != null) {
+                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Status must be pending or completed\"}");
+                return;
+            }
+            
+            TaskPage page;
+            try {
+                int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+                if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                    throw new IllegalArgumentException("limit out of range");
+                }
+                page = taskManager.getTaskPage(completed, params.get("prefix"), params.get("cursor"), limit);
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Invalid limit or cursor\"}");
+                return;
+            }
+            
+            if (page.getNextCursor() != null) {
+                exchange.getResponseHeaders().set("X-Next-Cursor", page.getNextCursor());
+            }
+            sendTasks(exchange, page.getTasks().size(), page.getTasks());
         }
         
         private void handleAddTask(HttpExchange exchange) throws IOException {
@@ -138,11 +459,28 @@ public class WebServer {
             
             String taskName = params.get("task-name");
             if (taskName != null && !taskName.trim().isEmpty()) {
-                boolean success = taskManager.addTask(taskName);
+                int priority;
+                Long dueTime;
+                try {
+                    // Optional scheduling fields; dueTime is epoch milliseconds
+                    priority = params.containsKey("priority") ? Integer.parseInt(params.get("priority")) : 0;
+                    dueTime = params.containsKey("dueTime") ? Long.valueOf(params.get("dueTime")) : null;
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Invalid priority or due time\"}");
+                    return;
+                }
+                
+                String recurrenceError = TaskManager.recurrenceError(params.get("recurrence"));
+                if (recurrenceError != null) {
+                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"" + recurrenceError + "\"}");
+                    return;
+                }
+                
+                boolean success = taskManager.addTask(taskName, priority, dueTime, params.get("recurrence"));
                 if (success) {
                     sendResponse(exchange, 200, "{\"success\": true}");
                 } else {
-                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Task already exists\"}");
+                    sendResponse(exchange, 409, "{\"success\": false, \"error\": \"Task already exists\"}");
                 }
             } else {
                 sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Task name is required\"}");
@@ -189,6 +527,110 @@ public class WebServer {
         }
     }
     
+    // Delta sync: GET /api/tasks/changes?since={version}
+    private class ChangesHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            String since = parseQueryString(exchange.getRequestURI().getQuery()).get("since");
+            long sinceVersion;
+            try {
+                sinceVersion = Long.parseLong(since);
+            } catch (NumberFormatException e) {
+                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"since is required\"}");
+                return;
+            }
+            
+            List<TaskEvent> changes = taskManager.getChangesSince(sinceVersion);
+            Map<String, Object> body = new LinkedHashMap<>();
+            // Version the client is now in sync with; only as far as the changes returned
+            body.put("version", changes == null ? taskManager.getVersion()
+                    : changes.isEmpty() ? sinceVersion
+                    : changes.get(changes.size() - 1).getVersion());
+            // reset=true: history no longer covers "since", reload GET /api/tasks
+            body.put("reset", changes == null);
+            body.put("changes", changes != null ? changes : List.of());
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            sendResponse(exchange, 200, objectMapper.writeValueAsString(body));
+        }
+    }
+    
+    // Bulk operations: POST /api/tasks/batch with a JSON array of {op, id, name, completed, ...}
+    private class BatchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            List<BatchOperation> operations;
+            try (InputStream body = exchange.getRequestBody()) {
+                operations = Trace.call("parse_json",
+                        () -> objectMapper.readValue(body, new TypeReference<List<BatchOperation>>() {}));
+            } catch (IOException e) {
+                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Expected a JSON array of operations\"}");
+                return;
+            }
+            if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+                sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Batch must have 1 to " + MAX_BATCH_SIZE + " operations\"}");
+                return;
+            }
+            // Null entries and entries without an op are malformed, not just failed operations
+            for (int i = 0; i < operations.size(); i++) {
+                if (operations.get(i) == null || operations.get(i).getOp() == null) {
+                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Operation " + i + " must be an object with an op\"}");
+                    return;
+                }
+            }
+            
+            List<BatchResult> results = taskManager.applyBatch(operations);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", results.stream().allMatch(BatchResult::isSuccess));
+            response.put("results", results);
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            sendResponse(exchange, 200, objectMapper.writeValueAsString(response));
+        }
+    }
+    
+    // Server-Sent Events: GET /api/tasks/stream[?since={version}]
+    private class StreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "Method not allowed");
+                return;
+            }
+            
+            // EventSource resends the last id it saw when it reconnects
+            String since = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            if (since == null) {
+                since = parseQueryString(exchange.getRequestURI().getQuery()).get("since");
+            }
+            Long sinceVersion = null;
+            if (since != null) {
+                try {
+                    sinceVersion = Long.parseLong(since.trim());
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, 400, "{\"success\": false, \"error\": \"Invalid version\"}");
+                    return;
+                }
+            }
+            
+            if (!eventStream.subscribe(exchange, sinceVersion)) {
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                sendResponse(exchange, 503, "{\"success\": false, \"error\": \"Too many streams\"}");
+            }
+        }
+    }
+    
     // Email subscription handler
     private class SubscribeHandler implements HttpHandler {
         @Override
@@ -203,7 +645,10 @@ public class WebServer {
             
             String email = params.get("email");
             if (email != null && !email.trim().isEmpty()) {
-                boolean success = emailService.subscribeEmail(email);
+                boolean success = Trace.call("email.subscribe", () -> {
+                    String code = subscriberRegistry.subscribe(email);
+                    return code != null && verificationMailer.send(email, code);
+                });
                 
                 if (success) {
                     sendResponse(exchange, 200, "{\"success\": true, \"message\": \"Verification email sent\"}");
@@ -228,8 +673,8 @@ public class WebServer {
             
             if (encodedEmail != null && code != null) {
                 try {
-                    String email = new String(Base64.getDecoder().decode(encodedEmail));
-                    boolean success = emailService.verifySubscription(email, code);
+                    String email = new String(Base64.getDecoder().decode(encodedEmail), StandardCharsets.UTF_8);
+                    boolean success = Trace.call("email.verify", () -> subscriberRegistry.verify(email, code));
                     
                     String response = success ? 
                         "<html><body><h2>Subscription Verified!</h2><p>You will now receive task reminders.</p></body></html>" :
@@ -258,8 +703,8 @@ public class WebServer {
             
             if (encodedEmail != null) {
                 try {
-                    String email = new String(Base64.getDecoder().decode(encodedEmail));
-                    boolean success = emailService.unsubscribeEmail(email);
+                    String email = new String(Base64.getDecoder().decode(encodedEmail), StandardCharsets.UTF_8);
+                    boolean success = Trace.call("email.unsubscribe", () -> subscriberRegistry.unsubscribe(email));
                     
                     String response = success ?
                         "<html><body><h2>Unsubscribed</h2><p>You have been unsubscribed from task reminders.</p></body></html>" :
@@ -279,15 +724,17 @@ public class WebServer {
     
     // Helper methods
     private String readRequestBody(HttpExchange exchange) throws IOException {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
-            StringBuilder body = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                body.append(line);
+        return Trace.call("read_body", () -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                StringBuilder body = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    body.append(line);
+                }
+                return body.toString();
             }
-            return body.toString();
-        }
+        });
     }
     
     private Map<String, String> parseFormData(String formData) {
@@ -312,7 +759,7 @@ public class WebServer {
     
     private Map<String, String> parseJsonData(String jsonData) {
         try {
-            return objectMapper.readValue(jsonData, Map.class);
+            return Trace.call("parse_json", () -> objectMapper.readValue(jsonData, Map.class));
         } catch (Exception e) {
             return new HashMap<>();
         }
@@ -338,9 +785,87 @@ public class WebServer {
         return params;
     }
     
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        Trace.run("write_response", () -> {
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+    }
+    
+    /**
+     * Serialize tasks as a JSON array straight into the response.
+     * Large lists are streamed chunked; small ones go through a pooled buffer
+     * so they can be sent with a Content-Length.
+     */
+    private void sendTasks(HttpExchange exchange, int count, Iterable<Task> tasks) throws IOException {
+        Trace.run("write_response", () -> writeTaskResponse(exchange, count, tasks));
+    }
+    
+    private void writeTaskResponse(HttpExchange exchange, int count, Iterable<Task> tasks) throws IOException {
+        if (count > STREAMING_THRESHOLD) {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                writeTasks(os, tasks);
+            }
+            return;
+        }
+        
+        ResponseBuffer buffer = responseBuffers.poll();
+        if (buffer == null) {
+            buffer = new ResponseBuffer();
+        }
+        try {
+            writeTasks(buffer, tasks);
+            exchange.sendResponseHeaders(200, buffer.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                buffer.writeTo(os);
+            }
+        } finally {
+            if (buffer.capacity() <= MAX_POOLED_BUFFER_BYTES) {
+                buffer.reset();
+                responseBuffers.offer(buffer);
+            }
         }
-    }
\ No newline at end of file
+    }
+    
+    private void writeTasks(OutputStream out, Iterable<Task> tasks) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (Task task : tasks) {
+                taskWriter.writeValue(generator, task);
+            }
+            generator.writeEndArray();
+        }
+    }
+    
+    // ByteArrayOutputStream whose backing array survives reset() for reuse
+    private static class ResponseBuffer extends ByteArrayOutputStream {
+        ResponseBuffer() {
+            super(8192);
+        }
+        
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
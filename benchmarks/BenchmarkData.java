@@ -0,0 +1,113 @@
+package com.taskscheduler.benchmark;
+
+import com.taskscheduler.model.PendingSubscription;
+import com.taskscheduler.model.Task;
+import com.taskscheduler.service.Storage;
+import com.taskscheduler.service.TaskChange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generated tasks and an in-memory storage shared by the benchmarks
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+            "Review", "quarterly", "report", "Call", "supplier", "about", "invoice",
+            "Prepare", "slides", "Fix", "login", "bug", "Renew", "domain", "Book", "flights"
+    };
+    private static final String[] RECURRENCES = {"PT1H", "P1D", "P7D"};
+    
+    private BenchmarkData() {}
+    
+    /**
+     * Deterministic mix: a third have due times, a tenth recur, about half are completed.
+     * Ids come from the same seed too, so every run and every fork sees the same tasks.
+     */
+    static List<Task> generate(int taskCount) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i;
+            Long dueTime = random.nextInt(3) == 0 ? 1_700_000_000_000L + random.nextInt(1_000_000_000) : null;
+            String recurrence = random.nextInt(10) == 0 ? RECURRENCES[random.nextInt(RECURRENCES.length)] : null;
+            String id = new UUID(random.nextLong(), random.nextLong()).toString();
+            tasks.add(new Task(id, name, random.nextBoolean(), random.nextInt(4), dueTime, recurrence));
+        }
+        return tasks;
+    }
+    
+    /**
+     * Incremental storage that starts with generated tasks and persists nothing,
+     * so TaskManager and WebServer benchmarks measure the in-memory work only
+     */
+    static final class InMemoryStorage implements Storage {
+        private final List<Task> tasks;
+        
+        InMemoryStorage(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+        
+        @Override
+        public List<Task> loadTasks() {
+            return tasks;
+        }
+        
+        @Override
+        public void saveTasks(List<Task> tasks) {
+        }
+        
+        @Override
+        public boolean isIncremental() {
+            return true;
+        }
+        
+        @Override
+        public long taskAdded(Task task) {
+            return 0;
+        }
+        
+        @Override
+        public long taskCompleted(Task task) {
+            return 0;
+        }
+        
+        @Override
+        public long taskScheduled(Task task) {
+            return 0;
+        }
+        
+        @Override
+        public long taskDeleted(String taskId) {
+            return 0;
+        }
+        
+        @Override
+        public long taskBatch(List<TaskChange> changes) {
+            return 0;
+        }
+        
+        @Override
+        public List<String> loadSubscribers() {
+            return new ArrayList<>();
+        }
+        
+        @Override
+        public void saveSubscribers(List<String> subscribers) {
+        }
+        
+        @Override
+        public Map<String, PendingSubscription> loadPendingSubscriptions() {
+            return new HashMap<>();
+        }
+        
+        @Override
+        public void savePendingSubscriptions(Map<String, PendingSubscription> pendingSubscriptions) {
+        }
+    }
+}
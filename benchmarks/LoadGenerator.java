@@ -0,0 +1,839 @@
+package com.taskscheduler.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.taskscheduler.service.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator and soak test for the web API
+ *
+ * Replays a weighted mix of requests against a running server and reports
+ * throughput and latency percentiles per operation:
+ *   list       GET /api/tasks?limit=50
+ *   pending    GET /api/tasks?status=pending&limit=50
+ *   add        POST /api/tasks
+ *   complete   PUT /api/tasks
+ *   delete     DELETE /api/tasks?id=...
+ *   subscribe  POST /api/subscribe (sends a verification email; point the server at a test SMTP server)
+ *
+ * Two load models:
+ *   open    requests start on a fixed schedule (--rate per second) whether or not earlier ones finished
+ *   closed  --connections workers each wait for a response before sending the next,
+ *           optionally paced to a combined --rate
+ *
+ * Coordinated omission: a stalled server also stalls a client that waits for it,
+ * so the requests that would have been sent during the stall are never timed.
+ * Whenever there is a schedule (open, or closed with --rate), latency is measured
+ * from the time a request was due to be sent, not when it actually was, so a
+ * stall is charged to every request it delayed. "service" time, from the actual
+ * send, is reported next to it; the gap between the two is the queueing the
+ * server caused. Unpaced closed-loop runs have no schedule and report service time only.
+ *
+ * Soak mode runs for an hour by default and samples the server's heap and GC
+ * from /metrics every interval, reporting the trend of heap-after-GC at the end.
+ *
+ * Usage: java -cp target/benchmarks.jar com.taskscheduler.benchmark.LoadGenerator [options]
+ *   --url URL               server to test (http://localhost:8080)
+ *   --model open|closed     load model (open)
+ *   --rate N                requests per second; required for open (200)
+ *   --connections N         closed-loop workers (16)
+ *   --duration D            measured run time, e.g. 90s, 10m, 2h (60s; 1h with --soak)
+ *   --warmup D              run before measuring (10s)
+ *   --interval D            progress report interval (10s; 60s with --soak)
+ *   --mix op=w,...          operation weights (list=40,pending=20,add=15,complete=20,delete=5,subscribe=0)
+ *   --seed-tasks N          tasks created up front for complete and delete to work on (1000)
+ *   --max-in-flight N       open-loop cap on outstanding requests (10000)
+ *   --soak                  long run with server heap and GC tracking
+ *   --cleanup               delete every task this run created when it ends
+ *   --json FILE             also write the summary as JSON
+ */
+public class LoadGenerator {
+    private static final String[] OPERATIONS = {"list", "pending", "add", "complete", "delete", "subscribe"};
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+    
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Prefix of every task name and email this run creates, so the run's data can be found and removed
+    private final String runId = "load-" + UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    private final TaskPool taskPool = new TaskPool();
+    private final int[] cumulativeWeights;
+    
+    // Swapped when warmup ends (total) and at every report (interval)
+    private final AtomicReference<Stats> total = new AtomicReference<>(new Stats());
+    private final AtomicReference<Stats> interval = new AtomicReference<>(new Stats());
+    private final List<HeapSample> heapSamples = new ArrayList<>();
+    
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("See the LoadGenerator class comment for options");
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+    
+    LoadGenerator(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.cumulativeWeights = new int[OPERATIONS.length];
+        int sum = 0;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            sum += options.mix.getOrDefault(OPERATIONS[i], 0);
+            cumulativeWeights[i] = sum;
+        }
+    }
+    
+    void run() throws Exception {
+        System.out.printf("%s: %s load against %s, %s%n", runId, options.model,
+                options.url, options.model.equals("open") || options.rate > 0
+                        ? options.rate + " req/s" : options.connections + " connections, unpaced");
+        seedTasks();
+        
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        Thread reporter = startReporter(start, measureFrom, end);
+        try {
+            if (options.model.equals("open")) {
+                runOpen(start, end);
+            } else {
+                runClosed(start, end);
+            }
+        } finally {
+            // Give the reporter time to print the final interval
+            reporter.join(TimeUnit.NANOSECONDS.toMillis(Math.max(0, end - System.nanoTime())) + 2000);
+            reporter.interrupt();
+            reporter.join();
+        }
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+        
+        printSummary(total.get(), seconds);
+        if (options.soak) {
+            printHeapTrend();
+        }
+        if (options.jsonFile != null) {
+            writeJson(total.get(), seconds);
+        }
+        if (options.cleanup) {
+            cleanup();
+        }
+    }
+    
+    // Fixed schedule; the sender never waits for responses, only for the in-flight cap
+    private void runOpen(long start, long end) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        Random random = new Random();
+        for (long i = 0; ; i++) {
+            long due = start + i * intervalNanos;
+            if (due >= end) {
+                break;
+            }
+            parkUntil(due);
+            // Blocking here delays the send, but latency still counts from "due"
+            inFlight.acquire();
+            String operation = pickOperation(random);
+            HttpRequest request = buildRequest(operation);
+            if (request == null) {
+                inFlight.release();
+                continue;
+            }
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        record(operation, due, sent, response != null ? response.statusCode() : -1);
+                        inFlight.release();
+                    });
+        }
+        // Let outstanding requests finish so they are counted
+        if (!inFlight.tryAcquire(options.maxInFlight, REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            System.err.println("Gave up waiting for " + (options.maxInFlight - inFlight.availablePermits())
+                    + " outstanding requests");
+        }
+    }
+    
+    // Each worker sends, waits for the response, then sends again (at its next slot if paced)
+    private void runClosed(long start, long end) throws InterruptedException {
+        long workerInterval = options.rate > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) * options.connections / options.rate) : 0;
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < options.connections; w++) {
+            // Stagger paced workers across one interval so their requests do not arrive in bursts
+            long first = start + (workerInterval * w) / options.connections;
+            Thread worker = new Thread(() -> {
+                Random random = new Random();
+                long due = first;
+                while (true) {
+                    if (workerInterval == 0) {
+                        due = System.nanoTime();
+                    }
+                    if (due >= end) {
+                        break;
+                    }
+                    parkUntil(due);
+                    String operation = pickOperation(random);
+                    HttpRequest request = buildRequest(operation);
+                    if (request != null) {
+                        long sent = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        record(operation, due, sent, status);
+                    }
+                    due += workerInterval;
+                }
+            }, "load-worker-" + w);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+    
+    private void record(String operation, long due, long sent, int status) {
+        long now = System.nanoTime();
+        boolean scheduled = options.model.equals("open") || options.rate > 0;
+        long response = now - (scheduled ? due : sent);
+        long service = now - sent;
+        total.get().record(operation, response, service, status);
+        interval.get().record(operation, response, service, status);
+    }
+    
+    private HttpRequest buildRequest(String operation) {
+        String base = options.url;
+        switch (operation) {
+            case "list":
+                return get(base + "/api/tasks?limit=50");
+            case "pending":
+                return get(base + "/api/tasks?status=pending&limit=50");
+            case "add":
+                return form(base + "/api/tasks", "task-name=" + encode(runId + " task " + sequence.incrementAndGet()));
+            case "complete": {
+                String id = taskPool.pick();
+                if (id == null) {
+                    return skipped(operation);
+                }
+                String json = "{\"id\": \"" + id + "\", \"completed\": \""
+                        + ThreadLocalRandom.current().nextBoolean() + "\"}";
+                return HttpRequest.newBuilder(URI.create(base + "/api/tasks")).timeout(REQUEST_TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(json)).build();
+            }
+            case "delete": {
+                String id = taskPool.take();
+                if (id == null) {
+                    return skipped(operation);
+                }
+                return HttpRequest.newBuilder(URI.create(base + "/api/tasks?id=" + encode(id)))
+                        .timeout(REQUEST_TIMEOUT).DELETE().build();
+            }
+            case "subscribe":
+                return form(base + "/api/subscribe", "email=" + encode(runId + "-" + sequence.incrementAndGet() + "@example.test"));
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+    
+    private HttpRequest skipped(String operation) {
+        total.get().skipped(operation);
+        interval.get().skipped(operation);
+        return null;
+    }
+    
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+    
+    private static HttpRequest form(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+    
+    private String pickOperation(Random random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+    
+    // Batch adds return each new task's id, which complete and delete then draw from
+    private void seedTasks() throws IOException, InterruptedException {
+        for (int created = 0; created < options.seedTasks; created += SEED_BATCH_SIZE) {
+            int count = Math.min(SEED_BATCH_SIZE, options.seedTasks - created);
+            List<Map<String, Object>> operations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                operations.add(Map.of("op", "add", "name", runId + " seed " + (created + i)));
+            }
+            for (JsonNode result : postBatch(operations).path("results")) {
+                if (result.path("success").asBoolean()) {
+                    taskPool.add(result.path("id").asText());
+                }
+            }
+        }
+        if (options.seedTasks > 0) {
+            System.out.printf("Seeded %,d tasks%n", taskPool.size());
+        }
+    }
+    
+    // Finds everything named with this run's prefix, including tasks added during the run
+    private void cleanup() throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = options.url + "/api/tasks?limit=1000&prefix=" + encode(runId)
+                    + (cursor != null ? "&cursor=" + encode(cursor) : "");
+            HttpResponse<String> response = client.send(get(url), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Listing tasks failed: HTTP " + response.statusCode());
+            }
+            for (JsonNode task : objectMapper.readTree(response.body())) {
+                ids.add(task.path("id").asText());
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        } while (cursor != null);
+        
+        for (int from = 0; from < ids.size(); from += SEED_BATCH_SIZE) {
+            List<Map<String, Object>> operations = new ArrayList<>();
+            for (String id : ids.subList(from, Math.min(ids.size(), from + SEED_BATCH_SIZE))) {
+                operations.add(Map.of("op", "delete", "id", id));
+            }
+            postBatch(operations);
+        }
+        System.out.printf("Deleted %,d tasks created by %s%n", ids.size(), runId);
+    }
+    
+    private JsonNode postBatch(List<Map<String, Object>> operations) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.url + "/api/tasks/batch"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(operations)))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Batch request failed: HTTP " + response.statusCode() + " " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+    
+    private Thread startReporter(long start, long measureFrom, long end) {
+        Thread reporter = new Thread(() -> {
+            long intervalNanos = options.interval.toNanos();
+            long next = start + intervalNanos;
+            long lastReport = start;
+            long lastClientGcMillis = clientGcMillis();
+            boolean warm = false;
+            System.out.println("  time  phase      req/s    errors   p50 ms   p99 ms  p99.9 ms  server heap MB  after GC MB  server GC ms  client GC ms");
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!warm && measureFrom <= next) {
+                    parkUntil(measureFrom);
+                    // Totals restart once warmup is over
+                    total.set(new Stats());
+                    warm = true;
+                }
+                parkUntil(Math.min(next, end));
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                long now = System.nanoTime();
+                Stats stats = interval.getAndSet(new Stats());
+                ServerSample server = sampleServer(now - start);
+                long gcMillis = clientGcMillis();
+                LatencyHistogram all = stats.response("all");
+                System.out.printf("%5ds  %-7s %9.1f %9d %8.2f %8.2f %9.2f %15s %12s %13s %13d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start), lastReport < measureFrom ? "warmup" : "measure",
+                        stats.completed() / ((now - lastReport) / 1e9), stats.errors(),
+                        millis(all.percentile(50)), millis(all.percentile(99)), millis(all.percentile(99.9)),
+                        server != null ? megabytes(server.heapUsed) : "-",
+                        server != null ? megabytes(server.heapAfterGc) : "-",
+                        server != null ? String.format("%.0f", server.gcSecondsDelta * 1000) : "-",
+                        gcMillis - lastClientGcMillis);
+                lastClientGcMillis = gcMillis;
+                lastReport = now;
+                if (now >= end) {
+                    break;
+                }
+                next += intervalNanos;
+            }
+        }, "load-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+    
+    private double lastServerGcSeconds = Double.NaN;
+    
+    // Heap and GC from the server's /metrics; null if it does not export them
+    private ServerSample sampleServer(long elapsedNanos) {
+        try {
+            HttpResponse<String> response = client.send(get(options.url + "/metrics"), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            Map<String, Double> values = parseMetrics(response.body());
+            Double heapUsed = values.get("jvm_memory_used_bytes");
+            if (heapUsed == null) {
+                return null;
+            }
+            double gcSeconds = values.getOrDefault("jvm_gc_collection_seconds_total", 0.0);
+            ServerSample sample = new ServerSample(heapUsed, values.getOrDefault("jvm_memory_used_after_gc_bytes", Double.NaN),
+                    Double.isNaN(lastServerGcSeconds) ? 0 : gcSeconds - lastServerGcSeconds);
+            lastServerGcSeconds = gcSeconds;
+            if (options.soak) {
+                heapSamples.add(new HeapSample(elapsedNanos / 1e9, sample.heapAfterGc));
+            }
+            return sample;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    // Sums samples by metric name, so per-collector series add up to one figure
+    private static Map<String, Double> parseMetrics(String text) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            int brace = line.indexOf('{');
+            String name = line.substring(0, brace >= 0 && brace < space ? brace : space);
+            try {
+                values.merge(name, Double.parseDouble(line.substring(space + 1)), Double::sum);
+            } catch (NumberFormatException e) {
+                // Not a plain number (NaN, +Inf); skip
+            }
+        }
+        return values;
+    }
+    
+    // Least-squares slope of heap-after-GC over the run; steady growth suggests a leak
+    private void printHeapTrend() {
+        List<HeapSample> samples = new ArrayList<>();
+        for (HeapSample sample : heapSamples) {
+            if (!Double.isNaN(sample.heapAfterGc) && sample.heapAfterGc > 0) {
+                samples.add(sample);
+            }
+        }
+        if (samples.size() < 3) {
+            System.out.println("Heap trend: not enough samples (the server must export jvm_memory_used_after_gc_bytes)");
+            return;
+        }
+        double meanTime = 0;
+        double meanHeap = 0;
+        for (HeapSample sample : samples) {
+            meanTime += sample.seconds / samples.size();
+            meanHeap += sample.heapAfterGc / samples.size();
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (HeapSample sample : samples) {
+            covariance += (sample.seconds - meanTime) * (sample.heapAfterGc - meanHeap);
+            variance += (sample.seconds - meanTime) * (sample.seconds - meanTime);
+        }
+        double bytesPerHour = covariance / variance * 3600;
+        System.out.printf("Heap after GC: %s MB first, %s MB last, trend %+.1f MB/hour%n",
+                megabytes(samples.get(0).heapAfterGc), megabytes(samples.get(samples.size() - 1).heapAfterGc),
+                bytesPerHour / (1024 * 1024));
+        double growth = bytesPerHour * (samples.get(samples.size() - 1).seconds - samples.get(0).seconds) / 3600;
+        if (growth > 0.1 * meanHeap) {
+            System.out.println("WARNING: live heap grew by more than 10% over the run; check for a leak with a heap dump");
+        }
+    }
+    
+    private void printSummary(Stats stats, double seconds) {
+        boolean scheduled = options.model.equals("open") || options.rate > 0;
+        System.out.println();
+        System.out.printf("Measured %.0fs: %,d requests, %.1f req/s, %,d errors, %,d skipped%n",
+                seconds, stats.completed(), stats.completed() / seconds, stats.errors(), stats.skipped());
+        System.out.println(scheduled
+                ? "Latency in ms; response = from scheduled send (corrected for coordinated omission), service = from actual send"
+                : "Latency in ms from actual send (unpaced closed loop: not corrected for coordinated omission)");
+        System.out.printf("%-10s %-8s %9s %8s %8s %8s %8s %8s%n", "operation", "", "count", "p50", "p90", "p99", "p99.9", "max");
+        for (String operation : stats.operations()) {
+            printRow(operation, scheduled ? "response" : "service",
+                    scheduled ? stats.response(operation) : stats.service(operation));
+            if (scheduled) {
+                printRow("", "service", stats.service(operation));
+            }
+        }
+        if (!stats.statuses.isEmpty()) {
+            StringBuilder statuses = new StringBuilder("Status codes:");
+            stats.statuses.forEach((status, count) -> statuses.append(' ')
+                    .append(status < 0 ? "failed" : String.valueOf(status)).append('=').append(count.sum()));
+            System.out.println(statuses);
+        }
+    }
+    
+    private static void printRow(String operation, String kind, LatencyHistogram histogram) {
+        System.out.printf("%-10s %-8s %9d", operation, kind, histogram.getCount());
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %8.2f", millis(histogram.percentile(percentile)));
+        }
+        System.out.println();
+    }
+    
+    private void writeJson(Stats stats, double seconds) throws IOException {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("runId", runId);
+        summary.put("url", options.url);
+        summary.put("model", options.model);
+        summary.put("rate", options.rate);
+        summary.put("connections", options.connections);
+        summary.put("mix", options.mix);
+        summary.put("seconds", seconds);
+        summary.put("requests", stats.completed());
+        summary.put("throughput", stats.completed() / seconds);
+        summary.put("errors", stats.errors());
+        summary.put("skipped", stats.skipped());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (String operation : stats.operations()) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("count", stats.response(operation).getCount());
+            latency.put("responseMillis", percentiles(stats.response(operation)));
+            latency.put("serviceMillis", percentiles(stats.service(operation)));
+            operations.put(operation, latency);
+        }
+        summary.put("operations", operations);
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        stats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+        summary.put("statuses", statuses);
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(options.jsonFile), summary);
+        System.out.println("Summary written to " + options.jsonFile);
+    }
+    
+    private static Map<String, Double> percentiles(LatencyHistogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put(percentile == 100 ? "max" : "p" + (percentile == Math.rint(percentile)
+                    ? String.valueOf((int) percentile) : String.valueOf(percentile)), millis(histogram.percentile(percentile)));
+        }
+        return values;
+    }
+    
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+    
+    private static long clientGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+    
+    private static String megabytes(double bytes) {
+        return Double.isNaN(bytes) ? "-" : String.format("%.1f", bytes / (1024 * 1024));
+    }
+    
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Latency and outcome counts for one measurement window
+     */
+    private static final class Stats {
+        private final Map<String, LatencyHistogram> response = new ConcurrentHashMap<>();
+        private final Map<String, LatencyHistogram> service = new ConcurrentHashMap<>();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        
+        void record(String operation, long responseNanos, long serviceNanos, int status) {
+            response(operation).record(responseNanos);
+            response("all").record(responseNanos);
+            service(operation).record(serviceNanos);
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+            // 4xx answers such as "already exists" are valid outcomes of the mix; only 5xx and failures are errors
+            if (status < 200 || status >= 500) {
+                errors.increment();
+            }
+        }
+        
+        void skipped(String operation) {
+            skipped.increment();
+        }
+        
+        LatencyHistogram response(String operation) {
+            return response.computeIfAbsent(operation, key -> new LatencyHistogram());
+        }
+        
+        LatencyHistogram service(String operation) {
+            return service.computeIfAbsent(operation, key -> new LatencyHistogram());
+        }
+        
+        List<String> operations() {
+            List<String> operations = new ArrayList<>();
+            for (String operation : OPERATIONS) {
+                if (response.containsKey(operation)) {
+                    operations.add(operation);
+                }
+            }
+            return operations;
+        }
+        
+        long completed() {
+            return response("all").getCount();
+        }
+        
+        long errors() {
+            return errors.sum();
+        }
+        
+        long skipped() {
+            return skipped.sum();
+        }
+    }
+    
+    /**
+     * Ids of seeded tasks still present; complete picks one at random, delete takes one out
+     */
+    private static final class TaskPool {
+        private final List<String> ids = new ArrayList<>();
+        
+        synchronized void add(String id) {
+            ids.add(id);
+        }
+        
+        synchronized String pick() {
+            return ids.isEmpty() ? null : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+        
+        // Swap-remove, so taking is O(1)
+        synchronized String take() {
+            if (ids.isEmpty()) {
+                return null;
+            }
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            String id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+        
+        synchronized int size() {
+            return ids.size();
+        }
+    }
+    
+    private static final class ServerSample {
+        private final double heapUsed;
+        private final double heapAfterGc;
+        private final double gcSecondsDelta;
+        
+        ServerSample(double heapUsed, double heapAfterGc, double gcSecondsDelta) {
+            this.heapUsed = heapUsed;
+            this.heapAfterGc = heapAfterGc;
+            this.gcSecondsDelta = gcSecondsDelta;
+        }
+    }
+    
+    private static final class HeapSample {
+        private final double seconds;
+        private final double heapAfterGc;
+        
+        HeapSample(double seconds, double heapAfterGc) {
+            this.seconds = seconds;
+            this.heapAfterGc = heapAfterGc;
+        }
+    }
+    
+    /**
+     * Command line settings
+     */
+    static final class Options {
+        String url = "http://localhost:8080";
+        String model = "open";
+        double rate = -1;
+        int connections = 16;
+        Duration duration;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration interval;
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        int seedTasks = 1000;
+        int maxInFlight = 10_000;
+        boolean soak;
+        boolean cleanup;
+        String jsonFile;
+        
+        static Options parse(String[] args) {
+            Options options = new Options();
+            options.mix.put("list", 40);
+            options.mix.put("pending", 20);
+            options.mix.put("add", 15);
+            options.mix.put("complete", 20);
+            options.mix.put("delete", 5);
+            options.mix.put("subscribe", 0);
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--soak":
+                        options.soak = true;
+                        continue;
+                    case "--cleanup":
+                        options.cleanup = true;
+                        continue;
+                    default:
+                        break;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--url":
+                        options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                        break;
+                    case "--model":
+                        if (!value.equals("open") && !value.equals("closed")) {
+                            throw new IllegalArgumentException("--model must be open or closed");
+                        }
+                        options.model = value;
+                        break;
+                    case "--rate":
+                        options.rate = Double.parseDouble(value);
+                        break;
+                    case "--connections":
+                        options.connections = Integer.parseInt(value);
+                        break;
+                    case "--duration":
+                        options.duration = parseDuration(value);
+                        break;
+                    case "--warmup":
+                        options.warmup = parseDuration(value);
+                        break;
+                    case "--interval":
+                        options.interval = parseDuration(value);
+                        break;
+                    case "--mix":
+                        options.mix = parseMix(value);
+                        break;
+                    case "--seed-tasks":
+                        options.seedTasks = Integer.parseInt(value);
+                        break;
+                    case "--max-in-flight":
+                        options.maxInFlight = Integer.parseInt(value);
+                        break;
+                    case "--json":
+                        options.jsonFile = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (options.duration == null) {
+                options.duration = options.soak ? Duration.ofHours(1) : Duration.ofSeconds(60);
+            }
+            if (options.interval == null) {
+                options.interval = options.soak ? Duration.ofSeconds(60) : Duration.ofSeconds(10);
+            }
+            if (options.model.equals("open") && options.rate < 0) {
+                options.rate = 200;
+            }
+            if (options.rate == 0) {
+                throw new IllegalArgumentException("--rate must be above 0");
+            }
+            if (options.connections < 1 || options.maxInFlight < 1 || options.seedTasks < 0
+                    || options.interval.isZero() || options.interval.isNegative()) {
+                throw new IllegalArgumentException("Invalid connections, max-in-flight, seed-tasks or interval");
+            }
+            if (options.mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("--mix needs at least one operation with a weight above 0");
+            }
+            return options;
+        }
+        
+        // 90, 90s, 10m or 2h
+        static Duration parseDuration(String value) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            char unit = lower.charAt(lower.length() - 1);
+            long amount = Long.parseLong(Character.isDigit(unit) ? lower : lower.substring(0, lower.length() - 1));
+            switch (unit) {
+                case 'h':
+                    return Duration.ofHours(amount);
+                case 'm':
+                    return Duration.ofMinutes(amount);
+                default:
+                    return Duration.ofSeconds(amount);
+            }
+        }
+        
+        static Map<String, Integer> parseMix(String value) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String operation : OPERATIONS) {
+                mix.put(operation, 0);
+            }
+            for (String part : value.split(",")) {
+                String[] pair = part.trim().split("=", 2);
+                if (pair.length != 2 || !mix.containsKey(pair[0]) || Integer.parseInt(pair[1]) < 0) {
+                    throw new IllegalArgumentException("Bad mix entry '" + part + "'; operations are " + String.join(", ", OPERATIONS));
+                }
+                mix.put(pair[0], Integer.parseInt(pair[1]));
+            }
+            return mix;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.taskscheduler.benchmark;
+
+import com.taskscheduler.model.Task;
+import com.taskscheduler.service.FileStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileStorage.loadTasks and saveTasks over the whole task file
+ *
+ * Works on src/main/resources/data/ relative to the working directory, so
+ * run it from a scratch directory (run-benchmarks.sh does). loadTasks gets a
+ * new FileStorage per call because a SharedDataFile would otherwise answer
+ * from its cache without reading the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+    
+    // json: tasks.txt; binary: the memory-mapped tasks.bin snapshot
+    @Param({"json", "binary"})
+    public String format;
+    
+    private List<Task> tasks;
+    private FileStorage storage;
+    
+    @Setup(Level.Trial)
+    public void writeTasks() {
+        tasks = BenchmarkData.generate(taskCount);
+        newStorage().saveTasks(tasks);
+    }
+    
+    @Setup(Level.Invocation)
+    public void openStorage() {
+        storage = newStorage();
+    }
+    
+    @Benchmark
+    public List<Task> loadTasks() {
+        return storage.loadTasks();
+    }
+    
+    @Benchmark
+    public void saveTasks() {
+        storage.saveTasks(tasks);
+    }
+    
+    private FileStorage newStorage() {
+        return new FileStorage(false, "binary".equals(format));
+    }
+}
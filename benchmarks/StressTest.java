@@ -0,0 +1,255 @@
+package com.taskscheduler.benchmark;
+
+import com.taskscheduler.model.Task;
+import com.taskscheduler.model.TaskEvent;
+import com.taskscheduler.service.FileStorage;
+import com.taskscheduler.service.TaskManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent add/complete/delete stress test for TaskManager
+ *
+ * Writer threads hammer one TaskManager with adds, completes and deletes over a
+ * small shared pool of names, so most operations race with another thread on the
+ * same task. When the run ends it checks that:
+ *   - no name is stored twice
+ *   - the task count equals successful adds minus successful deletes
+ *   - the pending list holds exactly the uncompleted tasks
+ *   - listeners saw versions in strictly increasing order
+ *   - a fresh TaskManager loaded from storage holds the same tasks
+ *
+ * Exits with status 1 if any check fails. Tasks are created under a per-run name
+ * prefix and deleted at the end; FileStorage works relative to the working
+ * directory, so run it from a scratch directory.
+ *
+ * Usage: java -cp target/benchmarks.jar com.taskscheduler.benchmark.StressTest [options]
+ *   --threads N       writer threads (16)
+ *   --duration D      run time, e.g. 30s, 5m (30s)
+ *   --names N         size of the shared name pool (64)
+ *   --wal             use the write-ahead log
+ *   --binary          use binary snapshots
+ */
+public class StressTest {
+    private final int threads;
+    private final long durationMillis;
+    private final int names;
+    private final boolean writeAheadLog;
+    private final boolean binarySnapshots;
+    private final String prefix = "stress-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    
+    // Name to id of the live tasks, kept by a listener so it follows the manager's own order
+    private final Map<String, String> ids = new ConcurrentHashMap<>();
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final AtomicReference<String> versionError = new AtomicReference<>();
+    
+    private final LongAdder adds = new LongAdder();
+    private final LongAdder duplicateAdds = new LongAdder();
+    private final LongAdder completes = new LongAdder();
+    private final LongAdder deletes = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    private final List<String> failures = new ArrayList<>();
+    
+    private StressTest(int threads, long durationMillis, int names, boolean writeAheadLog, boolean binarySnapshots) {
+        this.threads = threads;
+        this.durationMillis = durationMillis;
+        this.names = names;
+        this.writeAheadLog = writeAheadLog;
+        this.binarySnapshots = binarySnapshots;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int threads = 16;
+        long durationMillis = 30_000;
+        int names = 64;
+        boolean writeAheadLog = false;
+        boolean binarySnapshots = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--duration" -> durationMillis = parseDuration(args[++i]);
+                case "--names" -> names = Integer.parseInt(args[++i]);
+                case "--wal" -> writeAheadLog = true;
+                case "--binary" -> binarySnapshots = true;
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        boolean passed = new StressTest(threads, durationMillis, names, writeAheadLog, binarySnapshots).run();
+        System.exit(passed ? 0 : 1);
+    }
+    
+    private boolean run() throws InterruptedException {
+        TaskManager manager = new TaskManager(new FileStorage(writeAheadLog, binarySnapshots));
+        int initialCount = manager.getTaskCount();
+        manager.addTaskListener(this::onEvent);
+        
+        System.out.printf("%d threads, %d names, %d s%s%s%n", threads, names, durationMillis / 1000,
+                writeAheadLog ? ", write-ahead log" : "", binarySnapshots ? ", binary snapshots" : "");
+        long end = System.currentTimeMillis() + durationMillis;
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> work(manager, end), "stress-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("adds %d (%d duplicates refused), completes %d, deletes %d, missed %d, errors %d%n",
+                adds.sum(), duplicateAdds.sum(), completes.sum(), deletes.sum(), missed.sum(), errors.sum());
+        
+        checkNames(manager);
+        check(manager.getTaskCount() == initialCount + adds.sum() - deletes.sum(),
+                "task count " + manager.getTaskCount() + ", expected " + (initialCount + adds.sum() - deletes.sum()));
+        check(manager.getTaskCount() == manager.getAllTasks().size(),
+                "task count " + manager.getTaskCount() + " but " + manager.getAllTasks().size() + " tasks listed");
+        checkPending(manager);
+        check(versionError.get() == null, versionError.get());
+        check(errors.sum() == 0, errors.sum() + " operations threw");
+        
+        manager.close();
+        TaskManager reloaded = new TaskManager(new FileStorage(writeAheadLog, binarySnapshots));
+        checkReload(manager, reloaded);
+        for (String id : ids.values()) {
+            reloaded.deleteTask(id);
+        }
+        reloaded.close();
+        
+        if (failures.isEmpty()) {
+            System.out.println("PASS");
+            return true;
+        }
+        for (String failure : failures) {
+            System.out.println("FAIL: " + failure);
+        }
+        return false;
+    }
+    
+    private void work(TaskManager manager, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.currentTimeMillis() < end) {
+            String name = prefix + random.nextInt(names);
+            try {
+                int roll = random.nextInt(100);
+                if (roll < 40) {
+                    if (manager.addTask(name)) {
+                        adds.increment();
+                    } else {
+                        duplicateAdds.increment();
+                    }
+                } else {
+                    String id = ids.get(name);
+                    boolean applied;
+                    if (id == null) {
+                        applied = false;
+                    } else if (roll < 75) {
+                        applied = manager.markTaskAsCompleted(id, random.nextBoolean());
+                        if (applied) {
+                            completes.increment();
+                        }
+                    } else {
+                        applied = manager.deleteTask(id);
+                        if (applied) {
+                            deletes.increment();
+                        }
+                    }
+                    if (!applied) {
+                        missed.increment();
+                    }
+                }
+            } catch (RuntimeException e) {
+                errors.increment();
+                System.err.println(Thread.currentThread().getName() + ": " + e);
+            }
+        }
+    }
+    
+    // Listeners are called in version order under the manager's change lock
+    private void onEvent(TaskEvent event) {
+        long previous = lastVersion.getAndSet(event.getVersion());
+        if (event.getVersion() <= previous) {
+            versionError.compareAndSet(null, "version " + event.getVersion() + " delivered after " + previous);
+        }
+        Task task = event.getTask();
+        if (!task.getName().startsWith(prefix)) {
+            return;
+        }
+        if (event.getType() == TaskEvent.Type.DELETED) {
+            ids.remove(task.getName(), task.getId());
+        } else {
+            ids.put(task.getName(), task.getId());
+        }
+    }
+    
+    private void checkNames(TaskManager manager) {
+        Set<String> seen = new HashSet<>();
+        for (Task task : manager.getAllTasks()) {
+            if (task.getName().startsWith(prefix)) {
+                check(seen.add(task.getName()), "name stored twice: " + task.getName());
+                check(task.getId().equals(ids.get(task.getName())),
+                        "listener lost track of " + task.getName());
+            }
+        }
+        check(seen.size() == ids.size(), seen.size() + " tasks stored, listeners saw " + ids.size());
+    }
+    
+    private void checkPending(TaskManager manager) {
+        Set<String> uncompleted = new HashSet<>();
+        for (Task task : manager.getAllTasks()) {
+            if (!task.isCompleted()) {
+                uncompleted.add(task.getId());
+            }
+        }
+        Set<String> pending = new HashSet<>();
+        for (Task task : manager.getPendingTasks()) {
+            check(pending.add(task.getId()), "task pending twice: " + task.getName());
+        }
+        check(pending.equals(uncompleted),
+                pending.size() + " pending tasks, " + uncompleted.size() + " uncompleted");
+    }
+    
+    private void checkReload(TaskManager manager, TaskManager reloaded) {
+        Map<String, Boolean> expected = new HashMap<>();
+        for (Task task : manager.getAllTasks()) {
+            expected.put(task.getId(), task.isCompleted());
+        }
+        Map<String, Boolean> actual = new HashMap<>();
+        for (Task task : reloaded.getAllTasks()) {
+            actual.put(task.getId(), task.isCompleted());
+        }
+        check(actual.equals(expected), "reload has " + actual.size() + " tasks, expected " + expected.size()
+                + (actual.keySet().equals(expected.keySet()) ? " (completed flags differ)" : ""));
+    }
+    
+    private void check(boolean condition, String failure) {
+        if (!condition) {
+            failures.add(failure);
+        }
+    }
+    
+    private static long parseDuration(String text) {
+        long value = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> value * 1000;
+            case 'm' -> value * 60_000;
+            case 'h' -> value * 3_600_000;
+            default -> throw new IllegalArgumentException("Duration needs a unit (s, m, h): " + text);
+        };
+    }
+}
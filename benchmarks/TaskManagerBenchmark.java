@@ -0,0 +1,95 @@
+package com.taskscheduler.benchmark;
+
+import com.taskscheduler.model.Task;
+import com.taskscheduler.service.TaskManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskManager operations on a loaded task list, without persistence cost
+ *
+ * The manager sits on an in-memory storage that accepts every change and
+ * writes nothing, so these figures cover the indexes and the pending queue.
+ * Storage cost is measured separately by {@link StorageBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TaskManagerBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int taskCount;
+    
+    private TaskManager taskManager;
+    private String[] names;
+    private String[] ids;
+    private boolean[] completed;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void loadTasks() {
+        List<Task> tasks = BenchmarkData.generate(taskCount);
+        names = new String[taskCount];
+        ids = new String[taskCount];
+        completed = new boolean[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            // Upper-cased, so the check has to match case-insensitively
+            names[i] = tasks.get(i).getName().toUpperCase();
+            ids[i] = tasks.get(i).getId();
+            completed[i] = tasks.get(i).isCompleted();
+        }
+        taskManager = new TaskManager(new BenchmarkData.InMemoryStorage(tasks));
+    }
+    
+    @TearDown(Level.Trial)
+    public void close() {
+        taskManager.close();
+    }
+    
+    // Rejected by the name index; nothing is added
+    @Benchmark
+    public boolean addDuplicateTask() {
+        return taskManager.addTask(names[nextIndex()]);
+    }
+    
+    // Flips a different task each call, moving it in and out of the pending queue
+    @Benchmark
+    public boolean markTaskAsCompleted() {
+        int index = nextIndex();
+        completed[index] = !completed[index];
+        return taskManager.markTaskAsCompleted(ids[index], completed[index]);
+    }
+    
+    // The reminder and first-page case
+    @Benchmark
+    public List<Task> getPendingTasksFirst50() {
+        return taskManager.getPendingTasks(50);
+    }
+    
+    @Benchmark
+    public List<Task> getPendingTasks() {
+        return taskManager.getPendingTasks();
+    }
+    
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == taskCount ? 0 : index + 1;
+        return index;
+    }
+}
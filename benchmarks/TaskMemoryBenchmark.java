@@ -0,0 +1,132 @@
+package com.taskscheduler.service;
+
+import com.taskscheduler.model.PendingSubscription;
+import com.taskscheduler.model.Task;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Heap footprint of the task representations
+ *
+ * Loads the same generated tasks three ways and reports retained heap per task:
+ *   tasks as List<Task>  the plain object list the JSON files deserialize into
+ *   TaskStore            the columnar table on its own
+ *   TaskManager          the store plus the name index and pending queue
+ *
+ * Usage: java -Xmx4g -cp target/benchmarks.jar com.taskscheduler.service.TaskMemoryBenchmark [taskCount]
+ *
+ * Lives in the service package, but in the benchmarks module, because TaskStore
+ * is package-private.
+ *
+ * Heap is measured after repeated System.gc() calls, so run it with nothing
+ * else in the JVM and treat the figures as estimates.
+ */
+public class TaskMemoryBenchmark {
+    private static final int DEFAULT_TASK_COUNT = 1_000_000;
+    private static final long SEED = 42;
+    private static final String[] WORDS = {
+            "Review", "quarterly", "report", "Call", "supplier", "about", "invoice",
+            "Prepare", "slides", "Fix", "login", "bug", "Renew", "domain", "Book", "flights"
+    };
+    private static final String[] RECURRENCES = {"PT1H", "P1D", "P7D"};
+    
+    public static void main(String[] args) throws InterruptedException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASK_COUNT;
+        System.out.printf("%,d tasks%n", taskCount);
+        
+        measure("List<Task>", taskCount, () -> generate(taskCount));
+        measure("TaskStore", taskCount, () -> {
+            TaskStore store = new TaskStore();
+            for (Task task : generate(taskCount)) {
+                store.add(task);
+            }
+            return store;
+        });
+        measure("TaskManager", taskCount, () -> new TaskManager(new GeneratedStorage(taskCount)));
+    }
+    
+    // Builds in a separate frame so the generated input is garbage by the time heap is measured
+    private static void measure(String label, int taskCount, Supplier<Object> builder) throws InterruptedException {
+        long baseline = usedHeap();
+        Object retained = builder.get();
+        long bytes = usedHeap() - baseline;
+        Reference.reachabilityFence(retained);
+        System.out.printf("%-12s %,8.1f MB  %,6.1f bytes/task%n",
+                label, bytes / (1024.0 * 1024.0), (double) bytes / taskCount);
+    }
+    
+    // Deterministic mix: a third have due times, a tenth recur, about half are completed
+    private static List<Task> generate(int taskCount) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i;
+            Long dueTime = random.nextInt(3) == 0 ? 1_700_000_000_000L + random.nextInt(1_000_000_000) : null;
+            String recurrence = random.nextInt(10) == 0 ? RECURRENCES[random.nextInt(RECURRENCES.length)] : null;
+            tasks.add(new Task(UUID.randomUUID().toString(), name, random.nextBoolean(),
+                    random.nextInt(4), dueTime, recurrence));
+        }
+        return tasks;
+    }
+    
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repeat until a collection no longer frees anything
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(100);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+    
+    /**
+     * Storage that hands out generated tasks and persists nothing
+     */
+    private static final class GeneratedStorage implements Storage {
+        private final int taskCount;
+        
+        GeneratedStorage(int taskCount) {
+            this.taskCount = taskCount;
+        }
+        
+        @Override
+        public List<Task> loadTasks() {
+            return generate(taskCount);
+        }
+        
+        @Override
+        public void saveTasks(List<Task> tasks) {
+        }
+        
+        @Override
+        public List<String> loadSubscribers() {
+            return new ArrayList<>();
+        }
+        
+        @Override
+        public void saveSubscribers(List<String> subscribers) {
+        }
+        
+        @Override
+        public Map<String, PendingSubscription> loadPendingSubscriptions() {
+            return new HashMap<>();
+        }
+        
+        @Override
+        public void savePendingSubscriptions(Map<String, PendingSubscription> pendingSubscriptions) {
+        }
+    }
+}
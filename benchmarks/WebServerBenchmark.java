@@ -0,0 +1,126 @@
+package com.taskscheduler.benchmark;
+
+import com.taskscheduler.model.Task;
+import com.taskscheduler.service.TaskManager;
+import com.taskscheduler.web.WebServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end request throughput against an in-process WebServer
+ *
+ * Requests go over loopback HTTP from several client threads, so the figures
+ * include parsing, routing, the executor and JSON output. Tasks live in an
+ * in-memory storage, as in {@link TaskManagerBenchmark}. A response with an
+ * unexpected status (including 503 from load shedding) fails the run rather
+ * than being counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class WebServerBenchmark {
+    @Param({"1000", "100000"})
+    public int taskCount;
+    
+    @Param({"PLATFORM_POOL", "DISPATCHER_THREAD"})
+    public WebServer.ExecutorMode mode;
+    
+    private WebServer server;
+    private TaskManager taskManager;
+    private HttpClient client;
+    private String baseUrl;
+    private String[] ids;
+    private final AtomicLong added = new AtomicLong();
+    
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        List<Task> tasks = BenchmarkData.generate(taskCount);
+        ids = tasks.stream().map(Task::getId).toArray(String[]::new);
+        taskManager = new TaskManager(new BenchmarkData.InMemoryStorage(tasks));
+        
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new WebServer(taskManager, null, null);
+        server.start(port, mode);
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.stop();
+        taskManager.close();
+    }
+    
+    @Benchmark
+    public byte[] listFirstPage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/tasks?limit=50")).GET());
+    }
+    
+    @Benchmark
+    public byte[] listPendingPage() throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/tasks?status=pending&limit=50")).GET());
+    }
+    
+    // Every call adds a new task, so the task list grows over the run
+    @Benchmark
+    public byte[] addTask() throws IOException, InterruptedException {
+        String form = "task-name=" + URLEncoder.encode("Benchmark task " + added.incrementAndGet(), StandardCharsets.UTF_8);
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/tasks"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)));
+    }
+    
+    @Benchmark
+    public byte[] markTaskAsCompleted() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String json = "{\"id\": \"" + ids[random.nextInt(ids.length)] + "\", \"completed\": \"" + random.nextBoolean() + "\"}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/tasks"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json)));
+    }
+    
+    private byte[] send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + ": "
+                    + new String(response.body(), StandardCharsets.UTF_8));
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,56 @@
+#!/bin/bash
+
+# run-benchmarks.sh - Build and run the JMH benchmarks, saving results as JSON
+#
+# Usage:
+#   ./run-benchmarks.sh [JMH options]             run all, or e.g. StorageBenchmark -p taskCount=1000
+#   ./run-benchmarks.sh compare BASE.json NEW.json  score change per benchmark between two runs
+#
+# Results are written to results/<commit>.json (with -dirty for uncommitted trees).
+
+set -e
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+PROJECT_ROOT="$(dirname "$SCRIPT_DIR")"
+RESULTS_DIR="$SCRIPT_DIR/results"
+
+if [ "$1" = "compare" ]; then
+    if [ $# -ne 3 ]; then
+        echo "Usage: $0 compare BASE.json NEW.json" >&2
+        exit 1
+    fi
+    if ! command -v jq &> /dev/null; then
+        echo "compare needs jq" >&2
+        exit 1
+    fi
+    # Positive change is better: higher throughput, or lower average time
+    jq -r -n --slurpfile base "$2" --slurpfile new "$3" '
+        def key: (.benchmark | sub("^com\\.taskscheduler\\.benchmark\\."; "")) + " " + ((.params // {}) | to_entries | map("\(.key)=\(.value)") | join(" "));
+        ($base[0] | map({(key): .primaryMetric.score}) | add) as $before
+        | $new[0][]
+        | key as $k
+        | select($before[$k] != null)
+        | (.primaryMetric.score / $before[$k]) as $ratio
+        | (if .mode == "thrpt" then $ratio - 1 else 1 / $ratio - 1 end) as $change
+        | "\($k)\t\($before[$k] | . * 1000 | round / 1000)\t\(.primaryMetric.score | . * 1000 | round / 1000) \(.primaryMetric.scoreUnit)\t\($change * 1000 | round / 10)%"
+    '
+    exit 0
+fi
+
+COMMIT="$(git -C "$PROJECT_ROOT" rev-parse --short HEAD)"
+if [ -n "$(git -C "$PROJECT_ROOT" status --porcelain --untracked-files=no)" ]; then
+    COMMIT="$COMMIT-dirty"
+fi
+
+# Benchmarks run against the installed task-scheduler artifact
+(cd "$PROJECT_ROOT" && mvn -B -q install -DskipTests)
+(cd "$SCRIPT_DIR" && mvn -B -q package)
+
+# FileStorage works relative to the working directory; keep the real data files out of it
+WORK_DIR="$(mktemp -d)"
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+mkdir -p "$RESULTS_DIR"
+(cd "$WORK_DIR" && java -jar "$SCRIPT_DIR/target/benchmarks.jar" -rf json -rff "$RESULTS_DIR/$COMMIT.json" "$@")
+
+echo "Results saved to $RESULTS_DIR/$COMMIT.json"